@@ -0,0 +1,80 @@
+package edu.iastate.cs472.proj1;
+
+/**
+ * The fixed set of positions the benchmarks run on. Each position is drawn as
+ * eight rows from the top of the board (row 0) to the bottom (row 7), using
+ * "r" for a red man, "R" for a red king, "b" for a black man, "B" for a black
+ * king and "." for an empty square. Black, the AI, is to move in every position.
+ */
+public class BenchmarkPositions {
+
+    static final String[] NAMES = { "opening", "middlegame", "king endgame", "multi-jump" };
+
+    private static final String[][] DIAGRAMS = {
+            {
+                    // opening: the start of a game after red's first move
+                    ".b.b.b.b",
+                    "b.b.b.b.",
+                    ".b.b.b.b",
+                    "........",
+                    ".r......",
+                    "..r.r.r.",
+                    ".r.r.r.r",
+                    "r.r.r.r." },
+            {
+                    // middlegame: both sides have traded a few men
+                    ".b.b.b.b",
+                    "b.b.....",
+                    ".b...b.b",
+                    "..b.....",
+                    ".....r..",
+                    "r...r.r.",
+                    ".r.r...r",
+                    "r.r.r.r." },
+            {
+                    // king endgame: two kings and a man against three kings
+                    "........",
+                    "..B.....",
+                    "........",
+                    "....R...",
+                    ".B......",
+                    "......R.",
+                    "...b....",
+                    "R......." },
+            {
+                    // multi-jump: black must jump, and one of the jumps can
+                    // continue in two different ways
+                    ".b.b....",
+                    "..b.....",
+                    "...r....",
+                    "......b.",
+                    "...r.r..",
+                    "........",
+                    ".r.....r",
+                    "r.r....." } };
+
+    private BenchmarkPositions() {
+    }
+
+    /**
+     * Return the numbered position as an 8x8 array of CheckersData piece
+     * constants.
+     */
+    static int[][] array(int position) {
+        String[] diagram = DIAGRAMS[position];
+        int[][] gameState = new int[8][8];
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                gameState[row][col] = ".rRbB".indexOf(diagram[row].charAt(col));
+            }
+        }
+        return gameState;
+    }
+
+    /**
+     * Return the numbered position as a BitBoard.
+     */
+    static BitBoard bitBoard(int position) {
+        return BitBoard.fromArray(array(position));
+    }
+}
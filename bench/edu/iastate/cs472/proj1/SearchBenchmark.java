@@ -0,0 +1,232 @@
+package edu.iastate.cs472.proj1;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.LongSupplier;
+
+/**
+ * Benchmarks for move generation, evaluation, making moves and the full search
+ * on the positions in BenchmarkPositions. Every benchmark is warmed up first and
+ * then timed over several rounds. It reports operations per second, the work
+ * done per second (nodes per second for searches) and the bytes allocated per
+ * operation. Move generation is measured on the old 8x8 array in CheckersData
+ * as well as on the BitBoard. Finally the same search is run with 1, 2, 4, ...
+ * threads up to the number of processors to report the speedup of the parallel
+ * search.
+ *
+ * The benchmarks live in their own source folder and compile against the game
+ * sources:
+ *
+ * <pre>
+ * javac -d out edu/iastate/cs472/proj1/*.java bench/edu/iastate/cs472/proj1/*.java
+ * java -cp out edu.iastate.cs472.proj1.SearchBenchmark [max search depth]
+ * </pre>
+ */
+public class SearchBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final long ROUND_NANOS = 500_000_000L;
+
+    // Results are added here so the JIT can't remove the benchmarked code
+    static long sink;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    public static void main(String[] args) {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+        System.out.printf("%-34s %-13s %14s %16s %12s%n", "benchmark", "position", "ops/s", "work/s", "B/op");
+        for (int position = 0; position < BenchmarkPositions.NAMES.length; position++) {
+            benchmarkPosition(position, maxDepth);
+        }
+
+        System.out.println();
+        benchmarkThreads(1, maxDepth);
+    }
+
+    /**
+     * Run every single threaded benchmark on one position.
+     */
+    private static void benchmarkPosition(int position, int maxDepth) {
+        String name = BenchmarkPositions.NAMES[position];
+        int[][] gameState = BenchmarkPositions.array(position);
+        BitBoard bitBoard = BenchmarkPositions.bitBoard(position);
+        AlphaBetaSearch search = new AlphaBetaSearch();
+        CheckersMove[] moves = bitBoard.getLegalMoves(CheckersData.BLACK);
+        int[] pieces = squares(bitBoard.black);
+        int[] buffer = new int[BitBoard.MAX_MOVES];
+
+        report("CheckersData.getLegalMoves", name, measure(() -> {
+            CheckersMove[] legalMoves = CheckersData.getLegalMoves(gameState, CheckersData.BLACK);
+            return legalMoves == null ? 0 : legalMoves.length;
+        }));
+        report("BitBoard.getLegalMoves", name, measure(() -> {
+            CheckersMove[] legalMoves = bitBoard.getLegalMoves(CheckersData.BLACK);
+            return legalMoves == null ? 0 : legalMoves.length;
+        }));
+        report("BitBoard.generateMoves", name, measure(() -> bitBoard.generateMoves(CheckersData.BLACK, buffer)));
+        report("CheckersData.getLegalJumpsFrom", name, measure(() -> {
+            long jumps = 0;
+            for (int sq : pieces) {
+                CheckersMove[] legalJumps = CheckersData.getLegalJumpsFrom(gameState, CheckersData.BLACK,
+                        BitBoard.row(sq), BitBoard.col(sq));
+                jumps += legalJumps == null ? 0 : legalJumps.length;
+            }
+            sink += jumps;
+            return pieces.length;
+        }));
+        report("BitBoard.getLegalJumpsFrom", name, measure(() -> {
+            long jumps = 0;
+            for (int sq : pieces) {
+                CheckersMove[] legalJumps = bitBoard.getLegalJumpsFrom(CheckersData.BLACK, BitBoard.row(sq),
+                        BitBoard.col(sq));
+                jumps += legalJumps == null ? 0 : legalJumps.length;
+            }
+            sink += jumps;
+            return pieces.length;
+        }));
+        report("BitBoard.generateJumpsFrom", name, measure(() -> {
+            long jumps = 0;
+            for (int sq : pieces)
+                jumps += bitBoard.generateJumpsFrom(CheckersData.BLACK, sq, buffer);
+            sink += jumps;
+            return pieces.length;
+        }));
+        report("evaluateBoard", name, measure(() -> {
+            sink += search.evaluateBoard(bitBoard);
+            return 1;
+        }));
+        AlphaBetaSearch cachedSearch = new AlphaBetaSearch();
+        cachedSearch.setEvaluationCache(new EvaluationCache(1 << 16));
+        report("evaluateBoard (cached)", name, measure(() -> {
+            sink += cachedSearch.evaluateBoard(bitBoard);
+            return 1;
+        }));
+        report("tryMove + undoMove (all moves)", name, measure(() -> {
+            for (CheckersMove move : moves) {
+                search.tryMove(bitBoard, move);
+                sink += bitBoard.hash;
+                search.undoMove(bitBoard);
+            }
+            return moves.length;
+        }));
+
+        TranspositionTable table = new TranspositionTable(1 << 20);
+        search.setTranspositionTable(table);
+        for (int depth = 4; depth <= maxDepth; depth += 2) {
+            search.setSearchDepth(depth);
+            report("search depth " + depth, name, measure(() -> {
+                table.clear();
+                search.findBestMove(bitBoard, moves, CheckersData.BLACK);
+                return search.getNodeCount();
+            }));
+        }
+
+        // The same search without late move reductions and futility pruning, to
+        // measure what they save
+        search.setLateMoveReductions(false);
+        search.setFutilityPruning(false);
+        search.setSearchDepth(maxDepth);
+        report("search depth " + maxDepth + " (full width)", name, measure(() -> {
+            table.clear();
+            search.findBestMove(bitBoard, moves, CheckersData.BLACK);
+            return search.getNodeCount();
+        }));
+    }
+
+    /**
+     * Search the middlegame position with more and more threads and report the
+     * speedup over one thread. Lazy SMP mostly gains by reaching the same depth
+     * sooner, so the time to complete the depth is what is compared.
+     */
+    private static void benchmarkThreads(int position, int depth) {
+        BitBoard bitBoard = BenchmarkPositions.bitBoard(position);
+        CheckersMove[] moves = bitBoard.getLegalMoves(CheckersData.BLACK);
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("parallel search, %s, depth %d (%d processors)%n", BenchmarkPositions.NAMES[position], depth,
+                processors);
+        System.out.printf("%8s %14s %16s %10s%n", "threads", "ms/search", "nodes/s", "speedup");
+        double singleThreadMillis = 0;
+        for (int threads = 1; threads <= Math.max(processors, 1); threads *= 2) {
+            TranspositionTable table = new TranspositionTable(1 << 20);
+            AlphaBetaSearch search = new AlphaBetaSearch(table);
+            search.setSearchDepth(depth);
+            search.setThreads(threads);
+            Result result = measure(() -> {
+                table.clear();
+                search.findBestMove(bitBoard, moves, CheckersData.BLACK);
+                return search.getNodeCount();
+            });
+            double millis = 1000.0 / result.opsPerSecond;
+            if (threads == 1)
+                singleThreadMillis = millis;
+            System.out.printf("%8d %14.2f %16.0f %10.2f%n", threads, millis, result.workPerSecond,
+                    singleThreadMillis / millis);
+            search.setThreads(1);
+        }
+    }
+
+    /**
+     * Return the square numbers of the bits set in the mask.
+     */
+    private static int[] squares(int mask) {
+        int[] squares = new int[Integer.bitCount(mask)];
+        for (int i = 0; mask != 0; i++) {
+            squares[i] = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+        }
+        return squares;
+    }
+
+    /**
+     * The averages of the measured rounds of one benchmark.
+     */
+    private static class Result {
+        double opsPerSecond;
+        double workPerSecond;
+        double bytesPerOp;
+    }
+
+    /**
+     * Run the operation repeatedly for the warmup rounds and then the measured
+     * rounds. The operation returns how much work it did (for example the number
+     * of nodes searched), which is also used to keep the JIT from removing it.
+     */
+    private static Result measure(LongSupplier operation) {
+        long thread = Thread.currentThread().getId();
+        long ops = 0, work = 0, bytes = 0, nanos = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long roundOps = 0, roundWork = 0;
+            long startBytes = THREADS.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            long end;
+            do {
+                roundWork += operation.getAsLong();
+                roundOps++;
+                end = System.nanoTime();
+            } while (end - start < ROUND_NANOS);
+            long roundBytes = THREADS.getThreadAllocatedBytes(thread) - startBytes;
+
+            if (round >= WARMUP_ROUNDS) {
+                ops += roundOps;
+                work += roundWork;
+                bytes += roundBytes;
+                nanos += end - start;
+            }
+        }
+        sink += work;
+
+        Result result = new Result();
+        result.opsPerSecond = ops * 1e9 / nanos;
+        result.workPerSecond = work * 1e9 / nanos;
+        result.bytesPerOp = (double) bytes / ops;
+        return result;
+    }
+
+    private static void report(String benchmark, String position, Result result) {
+        System.out.printf("%-34s %-13s %14.0f %16.0f %12.1f%n", benchmark, position, result.opsPerSecond,
+                result.workPerSecond, result.bytesPerOp);
+    }
+}
@@ -1,5 +1,11 @@
 package edu.iastate.cs472.proj1;
 
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class AlphaBetaSearch {
     private CheckersData board;
 
@@ -10,6 +16,207 @@ public class AlphaBetaSearch {
      */
     private int SearchDepth = 12;
 
+    /**
+     * The search deepens one level at a time, from 1 up to SearchDepth, and stops
+     * early once either of these budgets runs out. A value of 0 means no limit. The
+     * move returned is always the best move of the last depth that was searched
+     * completely, and depth 1 is always completed.
+     */
+    private long timeBudgetMillis = 0;
+    private long nodeLimit = 0;
+
+    // The depth of the current iteration. minValue and maxValue evaluate the board
+    // once they reach it.
+    private int depthLimit;
+
+    /**
+     * Quiescence search: a position at the depth limit where the player to move
+     * must jump is not evaluated yet, because the jumps about to happen would
+     * change the material at once. Instead the jumps are searched, and only their
+     * results are evaluated once no more jumps are pending. Each position at the
+     * depth limit may add at most quiescenceNodeLimit jumping positions. After
+     * that, positions are evaluated as they stand.
+     */
+    private boolean quiescence = true;
+    private int quiescenceNodeLimit = 64;
+    private int quiescenceNodes; // Jumping positions searched below the current leaf
+
+    /**
+     * Principal variation search: once the first move of a position has been
+     * searched, every other move is only tested against a null window to show it
+     * is no better. Only a move that fails this test is searched again with the
+     * real window. With good move ordering the first move is usually best, and
+     * the null window searches prune far more.
+     */
+    private boolean principalVariationSearch = true;
+
+    /**
+     * Each iteration after the first searches the root with a window of this size
+     * on both sides of the previous iteration's score, and searches again with a
+     * full window only if the score falls outside it. 0 turns this off.
+     */
+    private int aspirationWindow = 10;
+
+    /**
+     * Late move reductions: a quiet move (not a jump, and not a man moving to the
+     * last row) at index lateMoveIndex or later of the ordered moves, in a
+     * position with at least lateMoveMinDepth plies left, is first searched
+     * lateMoveReduction plies less deeply with a null window. Only if that shows
+     * it might be better than the moves before it is it searched again to the
+     * full depth. With good move ordering the late moves rarely are.
+     */
+    private boolean lateMoveReductions = true;
+    private int lateMoveIndex = 3;
+    private int lateMoveMinDepth = 3;
+    private int lateMoveReduction = 1;
+
+    /**
+     * Futility pruning: in a position with at most futilityDepth plies left, a
+     * quiet move other than the first is skipped if the evaluation of the
+     * position plus futilityMargin for every ply left still can't beat the best
+     * score the player to move is already sure of. A quiet move captures nothing
+     * itself, so only the exchanges it leads to could make up the difference.
+     */
+    private boolean futilityPruning = true;
+    private int futilityDepth = 1;
+    private int futilityMargin = 10;
+
+    // Score of the best move found by the last call to search
+    private int rootScore;
+
+    // Bookkeeping for the budget of the current move. The start time and deadline
+    // are moved when a ponder search becomes the real search.
+    private long nodes;
+    private volatile long startTime;
+    private volatile long deadline;
+    private boolean stopped;
+    private int completedDepth;
+
+    // Counts for the statistics of the current move, see SearchStats
+    private long quiescenceNodeCount;
+    private long tableProbes;
+    private long tableHits;
+    private long tableCutoffs;
+    private final long[] cutoffs = new long[SearchStats.CUTOFF_BUCKETS];
+    private SearchStats lastStats;
+
+    /**
+     * Number of threads that search each move. Extra threads run a "Lazy SMP"
+     * search: each helper searches the same position on its own board, sharing
+     * only the transposition table, so the helpers fill the table with results
+     * the main thread can reuse. The main thread alone decides the move, so with
+     * one thread the search is exactly the single threaded search.
+     */
+    private int threads = 1;
+    private AlphaBetaSearch[] helpers = new AlphaBetaSearch[0];
+    private ExecutorService helperPool;
+
+    // Set by the main search when it has finished so its helpers stop as well
+    private volatile boolean helpersStop;
+    private final AlphaBetaSearch mainSearch; // The main search, or null if this is the main search
+    private long helperNodes;
+
+    // Runs the searches started by makeMoveAsync and startPondering, one at a time.
+    // Created by the first of them, so a search only used synchronously has none.
+    private ExecutorService searchExecutor;
+
+    // The request of the search running on searchExecutor. The search stops if it is
+    // cancelled.
+    private volatile CompletableFuture<CheckersMove> request;
+
+    // Told about the progress of every search, or null
+    private volatile SearchListener listener;
+
+    /**
+     * Pondering: while the opponent thinks, guess their reply and search the
+     * position it leads to on the background thread, with no budget. If the guess
+     * was right, that search simply goes on as the search for the AI's move, and
+     * its budget starts when the opponent moves. If it was wrong, it is cancelled.
+     * Either way the transposition table has been filled in the meantime.
+     */
+    private boolean ponder;
+    private volatile boolean pondering; // The background search is pondering
+    private volatile boolean ponderHit; // Set with pondering = false when the ponder search becomes the real one
+    private long ponderNodes; // Nodes the current search visited while pondering
+    private BitBoard ponderPosition; // The position the ponder search is searching
+    private CompletableFuture<CheckersMove> ponderSearch;
+
+    /**
+     * The largest number of moves that can be on the search path at once. The
+     * quiescence search adds jumps beyond the depth limit, so this is comfortably
+     * larger than SearchDepth.
+     */
+    private static final int MAX_PLY = 128;
+
+    // Undo records for the moves on the current search path. The search makes and
+    // takes back moves on a single BitBoard, so undoStack[undoCount - 1] always
+    // describes the last move made.
+    private final MoveUndo[] undoStack = new MoveUndo[MAX_PLY];
+    private int undoCount;
+
+    // Packed moves (see BitBoard.move) generated at each level of the search path.
+    // A node uses moveBuffers[undoCount], so the moves of every node on the path
+    // stay intact while its children are searched.
+    private final int[][] moveBuffers = new int[MAX_PLY + 1][BitBoard.MAX_MOVES];
+
+    // The positions of the game up to the root followed by those of the search
+    // path, so minValue and maxValue can score repetitions as draws. tryMove and
+    // undoMove push and pop the positions of the path.
+    private final PositionHistory history = new PositionHistory(0);
+
+    // The history of the game on the board, kept up to date by the caller, or
+    // null if it is not known
+    private PositionHistory gameHistory;
+
+    // Scores of positions already evaluated, or null to evaluate every time. The
+    // evaluation is a running sum kept by BitBoard, cheaper than a lookup, so
+    // there is no cache unless one is set.
+    private EvaluationCache evaluationCache;
+
+    // Remembers the results of positions searched earlier, in this move or in
+    // earlier moves of the game.
+    private TranspositionTable transpositionTable;
+
+    // Decides which moves minValue and maxValue try first
+    private MoveOrderer moveOrderer = new HeuristicMoveOrderer();
+    private MoveOrderer moveOrdererSource; // For a helper, the main search's orderer its own was made from
+
+    // Exact results for positions with few pieces, or null if none is loaded
+    private EndgameTablebase tablebase;
+
+    // Prepared replies for the start of the game, or null if none is loaded
+    private OpeningBook openingBook;
+
+    /**
+     * Score of a tablebase win, less the number of plies from the root the win
+     * takes. It is higher than any score evaluateBoard can give, so a known win is
+     * preferred to any position that only looks good.
+     */
+    static final int TABLEBASE_WIN = 3000;
+
+    // Scores at least this far from zero are tablebase wins or losses
+    static final int TABLEBASE_BOUND = TABLEBASE_WIN - MAX_PLY - 255;
+
+    public AlphaBetaSearch() {
+        this(new TranspositionTable(1 << 20));
+    }
+
+    /**
+     * Create a search that uses the given transposition table instead of one of
+     * its own.
+     */
+    public AlphaBetaSearch(TranspositionTable transpositionTable) {
+        this(transpositionTable, null);
+    }
+
+    // A helper of mainSearch, or a main search if that is null
+    private AlphaBetaSearch(TranspositionTable transpositionTable, AlphaBetaSearch mainSearch) {
+        this.transpositionTable = transpositionTable;
+        this.mainSearch = mainSearch;
+        for (int i = 0; i < MAX_PLY; i++)
+            undoStack[i] = new MoveUndo();
+    }
+
     // An instance of this class will be created in the Checkers.Board
     // It would be better to keep the default constructor.
 
@@ -17,6 +224,234 @@ public class AlphaBetaSearch {
         this.board = board;
     }
 
+    /**
+     * Give the search the history of the game on the board, which the caller
+     * pushes every move to. makeMove, makeMoveAsync and startPondering copy it
+     * before searching, so repeated positions and the no-progress rule are scored
+     * as draws.
+     *
+     * @param gameHistory the history, or null if it is not known
+     */
+    public void setGameHistory(PositionHistory gameHistory) {
+        this.gameHistory = gameHistory;
+    }
+
+    /**
+     * Replace the move ordering used by minValue and maxValue, for example to
+     * measure how much a heuristic helps.
+     */
+    public void setMoveOrderer(MoveOrderer moveOrderer) {
+        this.moveOrderer = moveOrderer;
+    }
+
+    /**
+     * Use an endgame tablebase. Positions with few enough pieces are then scored
+     * exactly instead of being searched.
+     *
+     * @param tablebase the tablebase, or null to stop using one
+     */
+    public void setTablebase(EndgameTablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Use an opening book. Positions found in the book are answered with one of
+     * its moves instead of being searched.
+     *
+     * @param openingBook the book, or null to stop using one
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Keep evaluated positions in the given cache, which may be shared with other
+     * searches, or evaluate every position afresh if it is null.
+     */
+    public void setEvaluationCache(EvaluationCache evaluationCache) {
+        this.evaluationCache = evaluationCache;
+    }
+
+    /**
+     * Set the deepest level the search may reach.
+     */
+    public void setSearchDepth(int searchDepth) {
+        this.SearchDepth = Math.max(1, Math.min(searchDepth, MAX_PLY / 4));
+    }
+
+    /**
+     * Limit the time spent on each move. The search stops deepening and returns the
+     * best move of the last completed depth once the budget has been used up.
+     *
+     * @param millis time budget in milliseconds, or 0 for no limit
+     */
+    public void setTimeBudget(long millis) {
+        this.timeBudgetMillis = millis;
+    }
+
+    /**
+     * Limit the number of positions visited for each move, in the same way as the
+     * time budget.
+     *
+     * @param nodes node limit, or 0 for no limit
+     */
+    public void setNodeLimit(long nodes) {
+        this.nodeLimit = nodes;
+    }
+
+    /**
+     * Turn principal variation search on or off. See the principalVariationSearch
+     * field.
+     */
+    public void setPrincipalVariationSearch(boolean principalVariationSearch) {
+        this.principalVariationSearch = principalVariationSearch;
+    }
+
+    /**
+     * Set the size of the aspiration window, or 0 to search every iteration with a
+     * full window. See the aspirationWindow field.
+     */
+    public void setAspirationWindow(int aspirationWindow) {
+        this.aspirationWindow = Math.max(0, aspirationWindow);
+    }
+
+    /**
+     * Turn late move reductions on or off. See the lateMoveReductions field.
+     */
+    public void setLateMoveReductions(boolean lateMoveReductions) {
+        this.lateMoveReductions = lateMoveReductions;
+    }
+
+    /**
+     * Set the index of the first move in the move ordering that may be reduced.
+     */
+    public void setLateMoveIndex(int lateMoveIndex) {
+        this.lateMoveIndex = Math.max(1, lateMoveIndex);
+    }
+
+    /**
+     * Set the number of plies that must be left for moves to be reduced.
+     */
+    public void setLateMoveMinDepth(int lateMoveMinDepth) {
+        this.lateMoveMinDepth = Math.max(2, lateMoveMinDepth);
+    }
+
+    /**
+     * Set the number of plies a late move is reduced by. A reduced search always
+     * keeps at least one ply.
+     */
+    public void setLateMoveReduction(int lateMoveReduction) {
+        this.lateMoveReduction = Math.max(1, lateMoveReduction);
+    }
+
+    /**
+     * Turn futility pruning on or off. See the futilityPruning field.
+     */
+    public void setFutilityPruning(boolean futilityPruning) {
+        this.futilityPruning = futilityPruning;
+    }
+
+    /**
+     * Set the largest number of plies left at which quiet moves may be pruned.
+     */
+    public void setFutilityDepth(int futilityDepth) {
+        this.futilityDepth = Math.max(1, futilityDepth);
+    }
+
+    /**
+     * Set how much evaluation a quiet move is assumed able to gain per ply left.
+     */
+    public void setFutilityMargin(int futilityMargin) {
+        this.futilityMargin = Math.max(0, futilityMargin);
+    }
+
+    /**
+     * Turn the quiescence search on or off. See the quiescence field.
+     */
+    public void setQuiescence(boolean quiescence) {
+        this.quiescence = quiescence;
+    }
+
+    /**
+     * Set the largest number of jumping positions the quiescence search may
+     * search below one position at the depth limit.
+     */
+    public void setQuiescenceNodeLimit(int quiescenceNodeLimit) {
+        this.quiescenceNodeLimit = Math.max(0, quiescenceNodeLimit);
+    }
+
+    /**
+     * Set the number of threads that search each move. See the threads field.
+     */
+    public synchronized void setThreads(int threads) {
+        threads = Math.max(1, threads);
+        if (threads == this.threads)
+            return;
+        this.threads = threads;
+        if (helperPool != null)
+            helperPool.shutdownNow();
+        helperPool = null;
+        helpers = new AlphaBetaSearch[threads - 1];
+        if (threads > 1) {
+            helperPool = Executors.newFixedThreadPool(threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "AlphaBetaSearch helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < helpers.length; i++)
+                helpers[i] = new AlphaBetaSearch(transpositionTable, this);
+        }
+    }
+
+    /**
+     * Turn pondering on or off. See the ponder field.
+     */
+    public void setPonder(boolean ponder) {
+        this.ponder = ponder;
+        if (!ponder)
+            stopPondering();
+    }
+
+    /**
+     * Report the progress of every search to the given listener.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Return the depth of the last completed iteration of the most recent move.
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Return the number of positions visited while finding the most recent move,
+     * counting the positions visited by every thread.
+     */
+    public long getNodeCount() {
+        return nodes + helperNodes;
+    }
+
+    /**
+     * Return the statistics of the most recent move, or null if no move has been
+     * found yet.
+     */
+    public SearchStats getLastStats() {
+        return lastStats;
+    }
+
+    /**
+     * Replace the transposition table used by the search, for example to change
+     * its size or replacement policy.
+     */
+    public void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
     /**
      * Find the best move at current stage using the Alpha-Beta pruning algorithm
      * "search". The input parameter legalMoves contains all the possible moves. It
@@ -35,178 +470,966 @@ public class AlphaBetaSearch {
         // 2 - red king
         // 3 - black man
         // 4 - black king
-        System.out.println(board);
-        System.out.println();
-
-        // Make a copy of the current board so we can test and evaluate moves without
-        // changing the actual game. We only change the game board once the best move
-        // has been determined and made.
-        int[][] currentGameState = new int[8][8];
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                currentGameState[i][j] = this.board.board[i][j];
+        // Convert the current board to a BitBoard so we can test and evaluate moves
+        // without changing the actual game. The search makes and takes back moves on
+        // this one copy. We only change the game board once the best move has been
+        // determined and made.
+        BitBoard currentGameState = this.board.toBitBoard();
+
+        // Find the best move and then return it. How long it took and how deep it
+        // searched are in getLastStats.
+        return findBestMove(currentGameState, legalMoves, CheckersData.BLACK, gameHistory);
+    }
+
+    /**
+     * Like makeMove, but search on a background thread so the caller is not
+     * blocked. The position is copied from the board before this returns, so the
+     * board may change while the search runs. Cancelling the returned future
+     * stops the search.
+     *
+     * @param legalMoves All the legal moves for the agent at current step.
+     * @return a future completed with the chosen move
+     */
+    public CompletableFuture<CheckersMove> makeMoveAsync(CheckersMove[] legalMoves) {
+        BitBoard currentGameState = this.board.toBitBoard();
+
+        CompletableFuture<CheckersMove> pondered = ponderSearch;
+        ponderSearch = null;
+        if (pondered != null && currentGameState.equals(ponderPosition) && !pondered.isCancelled()) {
+            // Ponder hit: the search already running is for this position, so let it
+            // go on with its budget counting from now
+            startTime = System.currentTimeMillis();
+            deadline = timeBudgetMillis > 0 ? System.nanoTime() + timeBudgetMillis * 1_000_000 : Long.MAX_VALUE;
+            ponderHit = true;
+            pondering = false;
+            return pondered;
+        }
+        if (pondered != null)
+            pondered.cancel(false);
+        pondering = false;
+        return searchAsync(currentGameState, legalMoves, copyGameHistory());
+    }
+
+    /**
+     * Guess the opponent's reply in the current position of the board and start
+     * searching the position after it, if pondering is on. The guess is the best
+     * reply found by the search of the AI's last move, which is kept in the
+     * transposition table. Nothing is searched if there is no such reply.
+     *
+     * @param opponentMoves The legal moves of RED in the current position
+     */
+    public void startPondering(CheckersMove[] opponentMoves) {
+        stopPondering();
+        if (!ponder || opponentMoves == null)
+            return;
+        BitBoard position = this.board.toBitBoard();
+        long entry = transpositionTable.probe(Zobrist.hash(position, CheckersData.RED));
+        if (entry == 0)
+            return;
+        int move = TranspositionTable.move(entry);
+        int[] replies = rootMoves(position, opponentMoves, CheckersData.RED);
+        if (!contains(replies, replies.length, move))
+            return;
+
+        PositionHistory ponderHistory = copyGameHistory();
+        boolean reversible = PositionHistory.isReversible(position, move);
+        position.makeMove(move);
+        if (ponderHistory != null)
+            ponderHistory.push(position, reversible);
+        CheckersMove[] legalMoves = position.getLegalMoves(CheckersData.BLACK);
+        if (legalMoves == null)
+            return;
+
+        pondering = true;
+        ponderPosition = position;
+        ponderSearch = searchAsync(new BitBoard(position), legalMoves, ponderHistory);
+    }
+
+    /**
+     * Cancel the ponder search, if there is one.
+     */
+    public void stopPondering() {
+        if (ponderSearch != null) {
+            ponderSearch.cancel(false);
+            ponderSearch = null;
+        }
+        pondering = false;
+    }
+
+    /**
+     * Return a copy of the game history, taken on the caller's thread so the
+     * search doesn't see the moves made while it runs, or null if there is none.
+     */
+    private PositionHistory copyGameHistory() {
+        PositionHistory gameHistory = this.gameHistory;
+        return gameHistory == null ? null : new PositionHistory(gameHistory);
+    }
+
+    private synchronized ExecutorService searchExecutor() {
+        if (searchExecutor == null) {
+            searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "AlphaBetaSearch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return searchExecutor;
+    }
+
+    /**
+     * Find the best move for BLACK in the given position on the background thread.
+     */
+    private CompletableFuture<CheckersMove> searchAsync(BitBoard gameState, CheckersMove[] legalMoves,
+            PositionHistory gameHistory) {
+        CompletableFuture<CheckersMove> future = new CompletableFuture<>();
+        searchExecutor().execute(() -> {
+            // Publish the request before looking at it, so a cancel either arrives
+            // before the search starts or is seen by it
+            request = future;
+            if (future.isDone())
+                return;
+            try {
+                future.complete(findBestMove(gameState, legalMoves, CheckersData.BLACK, gameHistory));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                request = null;
             }
+        });
+        return future;
+    }
+
+    /**
+     * Find the best move for the given player in the given position, deepening
+     * iteratively within the time and node budgets and using every configured
+     * thread.
+     *
+     * @param gameState  The position to search. It is left unchanged.
+     * @param legalMoves All the legal moves of player in gameState. A jump that
+     *                   can go on jumping stands for every sequence it starts.
+     * @param player     The player to move, RED or BLACK
+     * @return the chosen move, with any further jumps linked through next
+     */
+    public CheckersMove findBestMove(BitBoard gameState, CheckersMove[] legalMoves, int player) {
+        return findBestMove(gameState, legalMoves, player, null);
+    }
+
+    /**
+     * Like findBestMove(BitBoard, CheckersMove[], int), knowing the positions of
+     * the game that led to gameState, so moves that repeat one of them are scored
+     * as draws.
+     *
+     * @param gameHistory The history of the game, ending with gameState, or null if
+     *                    it is not known. It is left unchanged.
+     */
+    public synchronized CheckersMove findBestMove(BitBoard gameState, CheckersMove[] legalMoves, int player,
+            PositionHistory gameHistory) {
+        if (gameHistory != null && gameHistory.size() > 0 && gameHistory.top() == gameState.hash)
+            history.copyFrom(gameHistory);
+        else
+            history.reset(gameState);
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        startTime = System.currentTimeMillis();
+        int[] rootMoves = rootMoves(gameState, legalMoves, player);
+        CheckersMove bookMove = findBookMove(gameState, rootMoves, player);
+        if (bookMove != null) {
+            if (!isCancelled())
+                finishStats(gameState, player, bookMove, event, false);
+            return bookMove;
         }
 
-        long startTime = System.currentTimeMillis();
+        deadline = timeBudgetMillis > 0 ? System.nanoTime() + timeBudgetMillis * 1_000_000 : Long.MAX_VALUE;
+        transpositionTable.newSearch();
 
-        // Find the best move and then return it
-        CheckersMove bestMove = search(currentGameState, legalMoves, 3, 0);
+        // Start the helpers on their own copies of the board. Half of them start one
+        // level deeper so the threads don't all work on the same depth.
+        Future<?>[] helperResults = new Future<?>[helpers.length];
+        helpersStop = false;
+        helperNodes = 0;
+        if (rootMoves.length > 1) {
+            for (int i = 0; i < helpers.length; i++) {
+                AlphaBetaSearch helper = helpers[i];
+                copySettingsTo(helper);
+                helper.history.copyFrom(history);
+                BitBoard helperGameState = new BitBoard(gameState);
+                // Copied here, as iterate reorders rootMoves while the helpers start
+                int[] helperMoves = rootMoves.clone();
+                int firstDepth = 1 + i % 2;
+                helperResults[i] = helperPool
+                        .submit(() -> helper.iterate(helperGameState, helperMoves, player, firstDepth));
+            }
+        }
 
-        System.out.println("Move took: " + (System.currentTimeMillis() - startTime) + "ms");
+        CheckersMove bestMove = iterate(gameState, rootMoves, player, 1);
 
+        helpersStop = true;
+        for (int i = 0; i < helperResults.length; i++) {
+            if (helperResults[i] == null)
+                continue;
+            try {
+                helperResults[i].get();
+            } catch (Exception e) {
+                // A failed helper only costs us the table entries it would have added
+            }
+            helperNodes += helpers[i].nodes;
+        }
+        // A cancelled search, such as a ponder search that guessed wrong, was never
+        // the AI's move, so its statistics are not reported
+        if (!isCancelled())
+            finishStats(gameState, player, bestMove, event, rootMoves.length > 1);
         return bestMove;
     }
 
+    /**
+     * Give a helper the tables and every search setting of this search, so the
+     * helpers search the same way as the main thread and the results they share
+     * through the transposition table are the ones it would have found. The
+     * helper gets its own copy of the move orderer, made again only when the
+     * orderer is replaced.
+     */
+    private void copySettingsTo(AlphaBetaSearch helper) {
+        helper.transpositionTable = transpositionTable;
+        helper.tablebase = tablebase;
+        helper.evaluationCache = evaluationCache;
+        helper.SearchDepth = SearchDepth;
+        helper.quiescence = quiescence;
+        helper.quiescenceNodeLimit = quiescenceNodeLimit;
+        helper.principalVariationSearch = principalVariationSearch;
+        helper.aspirationWindow = aspirationWindow;
+        helper.lateMoveReductions = lateMoveReductions;
+        helper.lateMoveIndex = lateMoveIndex;
+        helper.lateMoveMinDepth = lateMoveMinDepth;
+        helper.lateMoveReduction = lateMoveReduction;
+        helper.futilityPruning = futilityPruning;
+        helper.futilityDepth = futilityDepth;
+        helper.futilityMargin = futilityMargin;
+        if (helper.moveOrdererSource != moveOrderer) {
+            helper.moveOrderer = moveOrderer.newInstance();
+            helper.moveOrdererSource = moveOrderer;
+        }
+    }
+
+    /**
+     * Gather the statistics of the move just found, adding in those of the
+     * helpers if they ran, then report them to the listener and to the flight
+     * recorder.
+     */
+    private void finishStats(BitBoard gameState, int player, CheckersMove bestMove, SearchEvent event,
+            boolean helpersRan) {
+        long quiescenceNodeCount = this.quiescenceNodeCount;
+        long tableProbes = this.tableProbes;
+        long tableHits = this.tableHits;
+        long tableCutoffs = this.tableCutoffs;
+        long[] cutoffs = this.cutoffs.clone();
+        for (int h = 0; helpersRan && h < helpers.length; h++) {
+            AlphaBetaSearch helper = helpers[h];
+            quiescenceNodeCount += helper.quiescenceNodeCount;
+            tableProbes += helper.tableProbes;
+            tableHits += helper.tableHits;
+            tableCutoffs += helper.tableCutoffs;
+            for (int i = 0; i < cutoffs.length; i++)
+                cutoffs[i] += helper.cutoffs[i];
+        }
+        SearchStats stats = new SearchStats(getNodeCount(), quiescenceNodeCount, tableProbes, tableHits,
+                tableCutoffs, cutoffs, completedDepth, System.currentTimeMillis() - startTime,
+                principalVariation(gameState, player, bestMove));
+        lastStats = stats;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.depth = stats.getDepth();
+            event.nodes = stats.getNodes();
+            event.quiescenceNodes = stats.getQuiescenceNodes();
+            event.tableProbes = stats.getTableProbes();
+            event.tableHits = stats.getTableHits();
+            event.tableCutoffs = stats.getTableCutoffs();
+            event.firstMoveCutoffs = cutoffs[0];
+            for (long count : cutoffs)
+                event.cutoffs += count;
+            event.nodesPerSecond = stats.getNodesPerSecond();
+            event.principalVariation = stats.getPrincipalVariation();
+            event.commit();
+        }
+
+        SearchListener listener = this.listener;
+        if (listener != null)
+            listener.searchFinished(stats);
+    }
+
+    /**
+     * Return the line of play expected after the chosen move, following the best
+     * moves stored in the transposition table, in the notation of
+     * OpeningBookBuilder. The line ends where the table has no legal move or
+     * after completedDepth moves.
+     */
+    private String principalVariation(BitBoard gameState, int player, CheckersMove bestMove) {
+        BitBoard position = new BitBoard(gameState);
+        StringBuilder line = new StringBuilder();
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int move = BitBoard.move(bestMove);
+        for (int ply = 0; ply < Math.max(1, completedDepth); ply++) {
+            if (ply > 0) {
+                long entry = transpositionTable.probe(Zobrist.hash(position, player));
+                move = entry != 0 ? TranspositionTable.move(entry) : TranspositionTable.NO_MOVE;
+                int count = position.generateMoves(player, moves);
+                if (!contains(moves, count, move))
+                    break;
+                line.append(' ');
+            }
+            line.append(Perft.moveName(BitBoard.toCheckersMove(move)));
+            position.makeMove(move);
+            player = player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED;
+        }
+        return line.toString();
+    }
+
+    private static boolean contains(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return the packed moves (see BitBoard.move) of player in gameState that
+     * start with one of legalMoves. The search chooses between whole moves, so a
+     * jump that can go on jumping becomes one move for every way it can go on.
+     */
+    private static int[] rootMoves(BitBoard gameState, CheckersMove[] legalMoves, int player) {
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int count = 0;
+        int generated = gameState.generateMoves(player, moves);
+        for (int i = 0; i < generated; i++) {
+            int move = moves[i];
+            int firstJump = BitBoard.move(BitBoard.moveFrom(move), BitBoard.landing(move, 1));
+            for (CheckersMove legalMove : legalMoves) {
+                int legal = BitBoard.move(legalMove);
+                if (legal == move || (legalMove.next == null && legal == firstJump)) {
+                    moves[count++] = move;
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(moves, count);
+    }
+
+    /**
+     * Return the book move for the position, or null if there is no book, the
+     * position is not in it, or the book move is not one of the legal moves.
+     */
+    private CheckersMove findBookMove(BitBoard gameState, int[] rootMoves, int player) {
+        if (openingBook == null)
+            return null;
+        int move = openingBook.chooseMove(Zobrist.hash(gameState, player));
+        if (move == TranspositionTable.NO_MOVE)
+            return null;
+        for (int rootMove : rootMoves) {
+            if (rootMove == move) {
+                nodes = 0;
+                helperNodes = 0;
+                completedDepth = 0;
+                quiescenceNodeCount = 0;
+                tableProbes = 0;
+                tableHits = 0;
+                tableCutoffs = 0;
+                Arrays.fill(cutoffs, 0);
+                return BitBoard.toCheckersMove(move);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Search one level deeper each time, starting with the best move of the
+     * previous depth. If the budget runs out part way through a depth, that depth's
+     * result is thrown away. A forced move needs no search at all.
+     *
+     * @param rootMoves  the packed moves to choose from, reordered as it goes
+     * @param firstDepth the depth of the first iteration
+     */
+    private CheckersMove iterate(BitBoard gameState, int[] rootMoves, int player, int firstDepth) {
+        undoCount = 0;
+        nodes = 0;
+        ponderHit = false;
+        ponderNodes = 0;
+        quiescenceNodeCount = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        tableCutoffs = 0;
+        Arrays.fill(cutoffs, 0);
+        stopped = false;
+        completedDepth = 0;
+        moveOrderer.newSearch();
+
+        int bestMove = rootMoves[0];
+        int score = 0;
+        for (depthLimit = firstDepth; depthLimit <= SearchDepth && rootMoves.length > 1; depthLimit++) {
+            int alpha = Integer.MIN_VALUE, beta = Integer.MAX_VALUE;
+            if (depthLimit > firstDepth && aspirationWindow > 0) {
+                alpha = score - aspirationWindow;
+                beta = score + aspirationWindow;
+            }
+            int move = search(gameState, rootMoves, rootMoves.length, player, 0, alpha, beta);
+            if (!stopped && (rootScore <= alpha || rootScore >= beta)) {
+                // The score is outside the window, so it is only a bound and the move
+                // may not be the best. Search again with a full window.
+                move = search(gameState, rootMoves, rootMoves.length, player, 0, Integer.MIN_VALUE,
+                        Integer.MAX_VALUE);
+            }
+            if (stopped)
+                break;
+            score = rootScore;
+            bestMove = move;
+            completedDepth = depthLimit;
+            moveToFront(rootMoves, bestMove);
+            SearchListener listener = this.listener;
+            if (listener != null && mainSearch == null)
+                listener.iterationFinished(completedDepth, nodes + runningHelperNodes(),
+                        BitBoard.toCheckersMove(bestMove));
+
+            // The next depth takes longer than all of the previous ones together, so
+            // don't start it if it can't finish
+            if (timeBudgetMillis > 0 && !pondering && System.currentTimeMillis() - startTime > timeBudgetMillis / 2)
+                break;
+        }
+        return BitBoard.toCheckersMove(bestMove);
+    }
+
+    /**
+     * Return the number of positions the helpers have visited so far. The helpers
+     * are still running, so this is only an estimate.
+     */
+    private long runningHelperNodes() {
+        long total = 0;
+        for (AlphaBetaSearch helper : helpers)
+            total += helper.nodes;
+        return total;
+    }
+
+    /**
+     * Count a visited node and check whether the budget for this move has run out.
+     * Depth 1 of the main search is never interrupted so there is always a move to
+     * return, unless the search was cancelled. Helpers run until the main search
+     * tells them to stop. The nodes visited while pondering don't count against
+     * the node limit.
+     *
+     * @return true if the search should stop
+     */
+    private boolean outOfBudget() {
+        nodes++;
+        if (mainSearch != null) {
+            if ((nodes & 1023) == 0 && mainSearch.helpersStop)
+                stopped = true;
+            return stopped;
+        }
+        if ((nodes & 1023) == 0 && isCancelled())
+            stopped = true;
+        // pondering is read first: makeMoveAsync sets ponderHit before clearing it
+        boolean pondering = this.pondering;
+        if (!pondering && ponderHit) {
+            ponderHit = false;
+            ponderNodes = nodes;
+        }
+        if (stopped || depthLimit <= 1 || pondering)
+            return stopped;
+        if (nodeLimit > 0 && nodes - ponderNodes >= nodeLimit)
+            stopped = true;
+        else if ((nodes & 1023) == 0 && System.nanoTime() >= deadline)
+            stopped = true;
+        return stopped;
+    }
+
+    /**
+     * Return true if this search was started by makeMoveAsync or startPondering
+     * and has been cancelled since.
+     */
+    private boolean isCancelled() {
+        CompletableFuture<CheckersMove> request = this.request;
+        return request != null && request.isCancelled();
+    }
+
     /**
      * Finds the best possible move from a given game state using Alpha-Beta
-     * pruning.
+     * pruning. This is findBestMove under its old name: it deepens iteratively
+     * up to the search depth within the time and node budgets, like makeMove.
      * 
-     * @param gameState     An 8x8 int array containing the pieces of a game at a
-     *                      certain state
+     * @param gameState     A BitBoard containing the pieces of a game at a certain
+     *                      state
      * @param currentMoves  Array of all possible moves for the current player from
-     *                      the given gameState
+     *                      the given gameState, with the rest of every multi-jump
+     *                      linked through next
      * @param currentPlayer Keeps track of the current player and whether to min or
      *                      max the evaluation. Value is 3 for AI and 1 for human
      *                      player
-     * @param depth         Starting depth of the alpha-beta search. Should always
-     *                      be 0 UNLESS being called from the "tryMove" function, in
-     *                      which case we're exclusively looking for double jumps
-     *                      and the depth will have already incremented a certain
-     *                      amount before the jump move was found.
+     * @param depth         Ply of gameState in the search, which must be 0: the
+     *                      search always starts at the root
      */
-    public CheckersMove search(int[][] gameState, CheckersMove[] currentMoves, int currentPlayer, int depth) {
-        int bestScore = currentPlayer == 3 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
-        if (currentMoves == null || depth >= SearchDepth) {
-            bestScore = evaluateBoard(gameState);
-        }
+    public CheckersMove search(BitBoard gameState, CheckersMove[] currentMoves, int currentPlayer, int depth) {
+        if (depth != 0)
+            throw new IllegalArgumentException("The search must start at depth 0: " + depth);
+        return findBestMove(gameState, currentMoves, currentPlayer);
+    }
+
+    /**
+     * Search the first count packed moves (see BitBoard.move) of an array to
+     * depthLimit, within the window alpha to beta, and return the best. The score
+     * of the best move is left in rootScore. The best score so far bounds the
+     * search of every later move, so moves that can't be better are pruned.
+     */
+    private int search(BitBoard gameState, int[] currentMoves, int count, int currentPlayer, int depth, int alpha,
+            int beta) {
+        boolean maximizing = currentPlayer == CheckersData.BLACK;
+        int remaining = depthLimit - depth - 1;
+        int bestScore = maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
         int currentScore;
-        CheckersMove bestMove = currentMoves[0];
-
-        for (CheckersMove checkersMove : currentMoves) {
-            currentScore = minValue(tryMove(gameState, checkersMove, depth), 1, Integer.MIN_VALUE, Integer.MAX_VALUE,
-                    depth);
-            if (currentScore > bestScore) {
-                bestScore = currentScore;
-                bestMove = checkersMove;
+        int bestMove = currentMoves[0];
+
+        for (int i = 0; i < count; i++) {
+            if (stopped)
+                break;
+            int move = currentMoves[i];
+            tryMove(gameState, move);
+            if (maximizing) {
+                int low = Math.max(alpha, bestScore);
+                if (i == 0 || !principalVariationSearch) {
+                    currentScore = minValue(gameState, CheckersData.RED, low, beta, remaining);
+                } else {
+                    currentScore = minValue(gameState, CheckersData.RED, low, low + 1, remaining);
+                    if (currentScore > low && currentScore < beta && !stopped)
+                        currentScore = minValue(gameState, CheckersData.RED, low, beta, remaining);
+                }
+                undoMove(gameState);
+                if (currentScore > bestScore) {
+                    bestScore = currentScore;
+                    bestMove = move;
+                }
+                if (bestScore >= beta)
+                    break;
+            } else {
+                int high = Math.min(beta, bestScore);
+                if (i == 0 || !principalVariationSearch) {
+                    currentScore = maxValue(gameState, CheckersData.BLACK, alpha, high, remaining);
+                } else {
+                    currentScore = maxValue(gameState, CheckersData.BLACK, high - 1, high, remaining);
+                    if (currentScore < high && currentScore > alpha && !stopped)
+                        currentScore = maxValue(gameState, CheckersData.BLACK, alpha, high, remaining);
+                }
+                undoMove(gameState);
+                if (currentScore < bestScore) {
+                    bestScore = currentScore;
+                    bestMove = move;
+                }
+                if (bestScore <= alpha)
+                    break;
             }
         }
 
+        rootScore = bestScore;
         return bestMove;
     }
 
     /**
      * 
-     * @param gameState An 8x8 int array containing the pieces of a game at a
-     *                  certain state
+     * @param gameState A BitBoard containing the pieces of a game at a certain
+     *                  state
      * @param player    Value of the current player. Should always be 1 since we're
      *                  looking for the min value of the human player
      * @param alpha     The current highest value found by the search algorithm. If
      *                  a lower value is found, we can prune this branch
      * @param beta      The current lowest value found by the search algorithm.
-     * @param depth     The current depth of the algorithm. The search stops if the
-     *                  depth reaches the searchDepth
+     * @param remaining The number of plies left to search below this position.
+     *                  The distance from the root is the number of moves made,
+     *                  undoCount, which a reduced search does not change
      */
-    public int minValue(int[][] gameState, int player, int alpha, int beta, int depth) {
-        depth++;
-        CheckersMove[] legalMoves = this.board.getLegalMoves(gameState, player);
+    public int minValue(BitBoard gameState, int player, int alpha, int beta, int remaining) {
+        int ply = undoCount;
+        if (outOfBudget()) {
+            return 0;
+        }
+        if (gameState.isGameOver()) {
+            return evaluateBoard(gameState);
+        }
+        if (history.isDraw()) {
+            return 0;
+        }
+        if (tablebase != null) {
+            int result = tablebase.probe(gameState, player);
+            if (result != EndgameTablebase.NOT_FOUND) {
+                return tablebaseScore(result, player, ply);
+            }
+        }
+        if (remaining <= 0) {
+            if (!quiescence)
+                return evaluateBoard(gameState);
+            quiescenceNodes = 0;
+            return quiesce(gameState, player, alpha, beta);
+        }
+
+        // Check whether this position has already been searched deeply enough
+        long key = Zobrist.hash(gameState, player);
+        long entry = transpositionTable.probe(key);
+        tableProbes++;
+        if (entry != 0)
+            tableHits++;
+        if (entry != 0 && TranspositionTable.depth(entry) >= remaining) {
+            int score = scoreFromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                    || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                tableCutoffs++;
+                return score;
+            }
+        }
 
-        if (legalMoves == null || depth >= SearchDepth || isGameOver(gameState)) {
+        int[] legalMoves = moveBuffers[undoCount];
+        int count = gameState.generateMoves(player, legalMoves);
+        if (count == 0) {
             return evaluateBoard(gameState);
         }
+        moveOrderer.orderMoves(legalMoves, count, player,
+                entry != 0 ? TranspositionTable.move(entry) : TranspositionTable.NO_MOVE, ply);
+
+        int originalBeta = beta;
         int currentScore = Integer.MAX_VALUE;
-        for (CheckersMove checkersMove : legalMoves) {
-            currentScore = Math.min(currentScore,
-                    maxValue(tryMove(gameState, checkersMove, depth), 3, alpha, beta, depth));
-            if (currentScore <= alpha) {
+        int bestMove = legalMoves[0];
+        int futilityScore = futilityScore(gameState, remaining, -futilityMargin, Integer.MIN_VALUE);
+        for (int i = 0; i < count; i++) {
+            int move = legalMoves[i];
+            if (i > 0 && futilityScore >= beta && isQuiet(gameState, move)) {
+                currentScore = Math.min(currentScore, futilityScore);
+                continue;
+            }
+            int reduction = reduction(gameState, move, i, remaining);
+            tryMove(gameState, move);
+            int score;
+            if (i == 0) {
+                score = maxValue(gameState, CheckersData.BLACK, alpha, beta, remaining - 1);
+            } else {
+                // Null windows: first only show the move doesn't score below beta,
+                // with a reduced search for a late move and then a full one, and
+                // search with the whole window only if it might
+                score = Integer.MIN_VALUE;
+                if (reduction > 0)
+                    score = maxValue(gameState, CheckersData.BLACK, beta - 1, beta, remaining - 1 - reduction);
+                if (score < beta && principalVariationSearch && !stopped)
+                    score = maxValue(gameState, CheckersData.BLACK, beta - 1, beta, remaining - 1);
+                if (score < beta && (score > alpha || !principalVariationSearch) && !stopped)
+                    score = maxValue(gameState, CheckersData.BLACK, alpha, beta, remaining - 1);
+            }
+            undoMove(gameState);
+            if (stopped) {
                 return currentScore;
             }
+            if (score < currentScore) {
+                currentScore = score;
+                bestMove = move;
+            }
+            if (currentScore <= alpha) {
+                moveOrderer.recordCutoff(bestMove, player, ply, remaining);
+                cutoffs[Math.min(i, cutoffs.length - 1)]++;
+                break;
+            }
             beta = Math.min(currentScore, beta);
         }
+
+        int bound = currentScore <= alpha ? TranspositionTable.UPPER_BOUND
+                : currentScore >= originalBeta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        transpositionTable.store(key, remaining, scoreToTable(currentScore, ply), bound, bestMove);
         return currentScore;
     }
 
     /**
      * 
-     * @param gameState An 8x8 int array containing the pieces of a game at a
-     *                  certain state
-     * @param player    Value of the current player. Should always be 1 since we're
-     *                  looking for the min value of the human player
+     * @param gameState A BitBoard containing the pieces of a game at a certain
+     *                  state
+     * @param player    Value of the current player. Should always be 3 since we're
+     *                  looking for the max value of the AI player
      * @param alpha     The current highest value found by the search algorithm
      * @param beta      The current lowest value found by the search algorithm. If a
      *                  higher value is found, we can prune this branch
-     * @param depth     The current depth of the algorithm. The search stops if the
-     *                  depth reaches the searchDepth
+     * @param remaining The number of plies left to search below this position.
+     *                  The distance from the root is the number of moves made,
+     *                  undoCount, which a reduced search does not change
      */
-    public int maxValue(int[][] gameState, int player, int alpha, int beta, int depth) {
-        depth++;
-        CheckersMove[] legalMoves = this.board.getLegalMoves(gameState, player);
+    public int maxValue(BitBoard gameState, int player, int alpha, int beta, int remaining) {
+        int ply = undoCount;
+        if (outOfBudget()) {
+            return 0;
+        }
+        if (gameState.isGameOver()) {
+            return evaluateBoard(gameState);
+        }
+        if (history.isDraw()) {
+            return 0;
+        }
+        if (tablebase != null) {
+            int result = tablebase.probe(gameState, player);
+            if (result != EndgameTablebase.NOT_FOUND) {
+                return tablebaseScore(result, player, ply);
+            }
+        }
+        if (remaining <= 0) {
+            if (!quiescence)
+                return evaluateBoard(gameState);
+            quiescenceNodes = 0;
+            return quiesce(gameState, player, alpha, beta);
+        }
+
+        // Check whether this position has already been searched deeply enough
+        long key = Zobrist.hash(gameState, player);
+        long entry = transpositionTable.probe(key);
+        tableProbes++;
+        if (entry != 0)
+            tableHits++;
+        if (entry != 0 && TranspositionTable.depth(entry) >= remaining) {
+            int score = scoreFromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                    || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                tableCutoffs++;
+                return score;
+            }
+        }
 
-        if (legalMoves == null || depth >= SearchDepth || isGameOver(gameState)) {
+        int[] legalMoves = moveBuffers[undoCount];
+        int count = gameState.generateMoves(player, legalMoves);
+        if (count == 0) {
             return evaluateBoard(gameState);
         }
+        moveOrderer.orderMoves(legalMoves, count, player,
+                entry != 0 ? TranspositionTable.move(entry) : TranspositionTable.NO_MOVE, ply);
+
+        int originalAlpha = alpha;
         int currentScore = Integer.MIN_VALUE;
-        for (CheckersMove checkersMove : legalMoves) {
-            currentScore = Math.max(currentScore,
-                    minValue(tryMove(gameState, checkersMove, depth), 1, alpha, beta, depth));
-            if (currentScore >= beta) {
+        int bestMove = legalMoves[0];
+        int futilityScore = futilityScore(gameState, remaining, futilityMargin, Integer.MAX_VALUE);
+        for (int i = 0; i < count; i++) {
+            int move = legalMoves[i];
+            if (i > 0 && futilityScore <= alpha && isQuiet(gameState, move)) {
+                currentScore = Math.max(currentScore, futilityScore);
+                continue;
+            }
+            int reduction = reduction(gameState, move, i, remaining);
+            tryMove(gameState, move);
+            int score;
+            if (i == 0) {
+                score = minValue(gameState, CheckersData.RED, alpha, beta, remaining - 1);
+            } else {
+                // Null windows: first only show the move doesn't score above alpha,
+                // with a reduced search for a late move and then a full one, and
+                // search with the whole window only if it might
+                score = Integer.MAX_VALUE;
+                if (reduction > 0)
+                    score = minValue(gameState, CheckersData.RED, alpha, alpha + 1, remaining - 1 - reduction);
+                if (score > alpha && principalVariationSearch && !stopped)
+                    score = minValue(gameState, CheckersData.RED, alpha, alpha + 1, remaining - 1);
+                if (score > alpha && (score < beta || !principalVariationSearch) && !stopped)
+                    score = minValue(gameState, CheckersData.RED, alpha, beta, remaining - 1);
+            }
+            undoMove(gameState);
+            if (stopped) {
                 return currentScore;
             }
+            if (score > currentScore) {
+                currentScore = score;
+                bestMove = move;
+            }
+            if (currentScore >= beta) {
+                moveOrderer.recordCutoff(bestMove, player, ply, remaining);
+                cutoffs[Math.min(i, cutoffs.length - 1)]++;
+                break;
+            }
             alpha = Math.max(currentScore, alpha);
         }
+
+        int bound = currentScore >= beta ? TranspositionTable.LOWER_BOUND
+                : currentScore <= originalAlpha ? TranspositionTable.UPPER_BOUND : TranspositionTable.EXACT;
+        transpositionTable.store(key, remaining, scoreToTable(currentScore, ply), bound, bestMove);
         return currentScore;
     }
 
     /**
-     * Try the move on a copy of the gameState. It is assumed that this move is
-     * legal. If the move is a jump, the jumped piece is removed from the board and
-     * we check for possible jumps from the piece that just jumped (look for double
-     * jumps). If a piece moves to the last row on the opponent's side of the board,
-     * the piece becomes a king.
-     * 
-     * @param gameState An 8x8 int array containing the pieces of a game at a
-     *                  certain state
-     * @param move      A move possible given the gameState
-     * @param depth     Current depth of the search. In the case of a possible
-     *                  double jump: after the first jump, we run the search
-     *                  alorithm starting from the current depth instead of 0.
-     */
-    int[][] tryMove(int[][] gameState, CheckersMove move, int depth) {
-        int[][] updatedGameState = new int[8][8];
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                updatedGameState[i][j] = gameState[i][j];
-            }
-        }
+     * Return the number of plies to reduce the search of a move by, see the
+     * lateMoveReductions field.
+     *
+     * @param index     the index of the move in the ordered moves
+     * @param remaining the plies left to search below the position the move is
+     *                  made in
+     */
+    private int reduction(BitBoard gameState, int move, int index, int remaining) {
+        if (!lateMoveReductions || index < lateMoveIndex || remaining < lateMoveMinDepth
+                || !isQuiet(gameState, move))
+            return 0;
+        return Math.min(lateMoveReduction, remaining - 1);
+    }
+
+    /**
+     * Return the best score a quiet move could reach in this position, for the
+     * futility pruning of minValue and maxValue, or noPruning if the position is
+     * too far from the depth limit to prune.
+     *
+     * @param margin futilityMargin for the maximizing player, -futilityMargin for
+     *               the minimizing one
+     */
+    private int futilityScore(BitBoard gameState, int remaining, int margin, int noPruning) {
+        if (!futilityPruning || remaining > futilityDepth)
+            return noPruning;
+        return evaluateBoard(gameState) + margin * remaining;
+    }
+
+    /**
+     * Return true if a move is quiet: it jumps nothing and doesn't make a king.
+     * Only a man can become a king, and a man can only reach the last row of its
+     * opponent, so a man moving to either end row is crowned.
+     */
+    private static boolean isQuiet(BitBoard gameState, int move) {
+        if (BitBoard.isJump(move))
+            return false;
+        if ((gameState.kings >>> BitBoard.moveFrom(move) & 1) != 0)
+            return true;
+        return ((1 << BitBoard.moveTo(move)) & (BitBoard.ROW_0 | BitBoard.ROW_7)) == 0;
+    }
 
-        // Move current piece
-        updatedGameState[move.toRow][move.toCol] = updatedGameState[move.fromRow][move.fromCol];
-        updatedGameState[move.fromRow][move.fromCol] = 0;
+    /**
+     * Search only the jumps of a position beyond the depth limit, until no jumps
+     * are pending. A position without jumps (or one found after the node limit of
+     * the quiescence search is used up) is evaluated as it stands. A player that
+     * can jump may not choose to do anything else, so the jumping positions never
+     * stand pat.
+     *
+     * @return the score, positive for black like in evaluateBoard
+     */
+    private int quiesce(BitBoard gameState, int player, int alpha, int beta) {
+        if (gameState.isGameOver()) {
+            return evaluateBoard(gameState);
+        }
+        int[] moves = moveBuffers[undoCount];
+        int count = gameState.generateMoves(player, moves);
+        if (count == 0 || !BitBoard.isJump(moves[0]) || quiescenceNodes >= quiescenceNodeLimit) {
+            return evaluateBoard(gameState);
+        }
+        quiescenceNodes++;
+        quiescenceNodeCount++;
+        if (outOfBudget()) {
+            return 0;
+        }
 
-        // Convert piece to a king
-        if (move.toRow == 7 && updatedGameState[move.toRow][move.toCol] == 3) {
-            updatedGameState[move.toRow][move.toCol] = 4;
-        } else if (move.toRow == 0 && updatedGameState[move.toRow][move.toCol] == 1) {
-            updatedGameState[move.toRow][move.toCol] = 2;
+        boolean maximizing = player == CheckersData.BLACK;
+        int opponent = maximizing ? CheckersData.RED : CheckersData.BLACK;
+        int currentScore = maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            tryMove(gameState, moves[i]);
+            int score = quiesce(gameState, opponent, alpha, beta);
+            undoMove(gameState);
+            if (stopped) {
+                return currentScore;
+            }
+            if (maximizing) {
+                currentScore = Math.max(currentScore, score);
+                if (currentScore >= beta)
+                    break;
+                alpha = Math.max(alpha, currentScore);
+            } else {
+                currentScore = Math.min(currentScore, score);
+                if (currentScore <= alpha)
+                    break;
+                beta = Math.min(beta, currentScore);
+            }
         }
+        return currentScore;
+    }
 
-        // Handle a jump move and search for possible double jumps. If there are more
-        // than one double jump, use the alpha-beta search to find the best possible
-        // double jump
-        if (move.isJump()) {
-            updatedGameState[(move.fromRow + move.toRow) / 2][(move.fromCol + move.toCol) / 2] = 0;
-            CheckersMove[] doubleJumps = this.board.getLegalJumpsFrom(updatedGameState,
-                    updatedGameState[move.toRow][move.toCol], move.toRow, move.toCol);
-            if (doubleJumps != null)
-                if (doubleJumps.length == 1)
-                    return tryMove(updatedGameState, doubleJumps[0], depth);
-                else
-                    return tryMove(updatedGameState,
-                            search(updatedGameState, doubleJumps, updatedGameState[move.toRow][move.toCol], depth),
-                            depth);
+    /**
+     * Move the given move to the front of the array so it is searched first. This
+     * orders the root moves, where the best move of the previous iteration is the
+     * most likely to be best again.
+     */
+    private static void moveToFront(int[] moves, int move) {
+        for (int i = 1; i < moves.length; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
         }
+    }
 
-        return updatedGameState;
+    /**
+     * Make the move on the gameState and push an undo record for it. It is assumed
+     * that this move is legal. If the move is a jump, the jumped pieces are
+     * removed from the board, and a multi-jump is made all the way to the end of
+     * its sequence. If a piece moves to the last row on the opponent's side of the
+     * board, the piece becomes a king. The whole move is taken back by one call to
+     * undoMove.
+     * 
+     * @param gameState A BitBoard containing the pieces of a game at a certain
+     *                  state
+     * @param move      A move possible given the gameState
+     */
+    void tryMove(BitBoard gameState, CheckersMove move) {
+        tryMove(gameState, BitBoard.move(move));
+    }
+
+    /**
+     * Like tryMove(BitBoard, CheckersMove), for a packed move (see BitBoard.move).
+     */
+    void tryMove(BitBoard gameState, int move) {
+        boolean reversible = PositionHistory.isReversible(gameState, move);
+        gameState.makeMove(move, undoStack[undoCount++]);
+        history.push(gameState.hash, reversible);
+    }
+
+    /**
+     * Take back the last move made by tryMove.
+     *
+     * @param gameState The BitBoard the move was made on
+     */
+    void undoMove(BitBoard gameState) {
+        gameState.unmakeMove(undoStack[--undoCount]);
+        history.pop();
+    }
+
+    /**
+     * Convert a tablebase result for the player to move into a score, where wins
+     * for black are positive like in evaluateBoard. The plies already played from
+     * the root count against the win, so a quicker win always scores higher.
+     */
+    static int tablebaseScore(int result, int player, int ply) {
+        int score;
+        if (EndgameTablebase.isWin(result))
+            score = TABLEBASE_WIN - ply - EndgameTablebase.distance(result);
+        else if (EndgameTablebase.isLoss(result))
+            score = ply + EndgameTablebase.distance(result) - TABLEBASE_WIN;
+        else
+            score = 0;
+        return player == CheckersData.BLACK ? score : -score;
+    }
+
+    /**
+     * Convert a tablebase score counted from the root into one counted from the
+     * node at the given ply, so the table entry stays right when the position is
+     * reached again at another ply. Other scores are returned unchanged.
+     */
+    static int scoreToTable(int score, int ply) {
+        if (score >= TABLEBASE_BOUND)
+            return score + ply;
+        if (score <= -TABLEBASE_BOUND)
+            return score - ply;
+        return score;
+    }
+
+    /**
+     * Convert a tablebase score read from the transposition table back into one
+     * counted from the root, undoing scoreToTable.
+     */
+    static int scoreFromTable(int score, int ply) {
+        if (score >= TABLEBASE_BOUND)
+            return score - ply;
+        if (score <= -TABLEBASE_BOUND)
+            return score + ply;
+        return score;
     }
 
     /**
@@ -220,59 +1443,32 @@ public class AlphaBetaSearch {
      * kings do in-fact become kings. And since kings are weighted so heavily,
      * pieces close to becoming kings are still treated as threatening
      */
-    public int evaluateBoard(int[][] gameState) {
-        int value = 0;
-        boolean foundRed = false;
-        boolean foundBlack = false;
-
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if (gameState[i][j] == 1) {
-                    foundRed = true;
-                    if (j == 0 || j == 7)
-                        value -= 2;
-                    value -= 5;
-                } else if (gameState[i][j] == 2) {
-                    foundRed = true;
-                    if (j == 0 || j == 7)
-                        value -= 4;
-                    value -= 50;
-                } else if (gameState[i][j] == 3) {
-                    foundBlack = true;
-                    if (j == 0 || j == 7)
-                        value += 2;
-                    value += 5;
-                } else if (gameState[i][j] == 4) {
-                    foundBlack = true;
-                    if (j == 0 || j == 7)
-                        value += 4;
-                    value += 80;
-                }
-            }
-        }
+    public int evaluateBoard(BitBoard gameState) {
+        EvaluationCache cache = evaluationCache;
+        if (cache == null)
+            return evaluate(gameState);
+        long entry = cache.probe(gameState.hash);
+        if (entry != 0)
+            return EvaluationCache.score(entry);
+        int value = evaluate(gameState);
+        cache.store(gameState.hash, value);
+        return value;
+    }
+
+    /**
+     * Evaluate the position without the cache, see evaluateBoard.
+     */
+    private int evaluate(BitBoard gameState) {
+        // The piece values (see BitBoard.PIECE_VALUES) are added up as moves are
+        // made and unmade, so there is nothing left to count here
+        int value = gameState.material;
+
         // Game Over states
-        if (!foundBlack)
+        if (gameState.black == 0)
             value -= 1000;
-        if (!foundRed)
+        if (gameState.red == 0)
             value += 1000;
 
         return value;
     }
-
-    // Helper method to check if a player no longer has peices remaining
-    public boolean isGameOver(int[][] gameState) {
-        boolean foundRed = false;
-        boolean foundBlack = false;
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if (gameState[i][j] == 1 || gameState[i][j] == 2)
-                    foundRed = true;
-                else if (gameState[i][j] == 3 || gameState[i][j] == 4)
-                    foundBlack = true;
-                if (foundRed && foundBlack)
-                    return false;
-            }
-        }
-        return true;
-    }
 }
@@ -0,0 +1,737 @@
+package edu.iastate.cs472.proj1;
+
+/**
+ * A compact representation of a checkers position that stores one bit for each
+ * of the 32 playable squares. Square numbers run from 0 in the top left corner
+ * to 31 in the bottom right corner, four per row, so the square in row r and
+ * column c (where r % 2 != c % 2) is number r * 4 + c / 2.
+ *
+ * Moves are generated by shifting whole masks one diagonal step at a time
+ * instead of visiting the squares one by one. The same color conventions as
+ * CheckersData apply: RED moves "up" the board (towards row 0) and BLACK moves
+ * "down" the board (towards row 7).
+ *
+ * The search works with moves packed into a single int (see move) and generates
+ * them into arrays it allocates once, so searching a node creates no objects.
+ * A jump that can go on jumping is generated as one move for every complete
+ * sequence of jumps, so a move always ends the player's turn.
+ * The methods taking and returning CheckersMove objects are adapters for the
+ * rest of the program.
+ */
+public class BitBoard {
+
+    /*
+     * The four diagonal directions a piece can step in. Red men may only use
+     * UP_LEFT and UP_RIGHT, black men may only use DOWN_LEFT and DOWN_RIGHT and
+     * kings may use all of them.
+     */
+    static final int UP_LEFT = 0, UP_RIGHT = 1, DOWN_LEFT = 2, DOWN_RIGHT = 3;
+
+    static final int ROW_0 = 0x0000000F; // Squares in the top row
+    static final int ROW_7 = 0xF0000000; // Squares in the bottom row
+    static final int EVEN_ROWS = 0x0F0F0F0F; // Rows 0, 2, 4 and 6
+    static final int ODD_ROWS = 0xF0F0F0F0; // Rows 1, 3, 5 and 7
+    static final int LEFT_EDGE = 0x10101010; // Squares in column 0
+    static final int RIGHT_EDGE = 0x08080808; // Squares in column 7
+    static final int EDGES = LEFT_EDGE | RIGHT_EDGE;
+
+    /*
+     * The most moves generated for a position. A player has at most 12 pieces and
+     * each can step in at most 4 directions, but kings that can jump on in several
+     * ways can have more sequences than that, so there is room to spare. Any
+     * sequences beyond it are left out.
+     */
+    static final int MAX_MOVES = 128;
+
+    /*
+     * The most jumps in one move. The packed form has room for the directions of
+     * all but the last jump of a sequence, and a sequence is ended here if it
+     * could go on, which only a contrived position could ever need.
+     */
+    static final int MAX_JUMPS = 9;
+
+    // NEIGHBORS[direction][sq] is the square one step away from sq in that
+    // direction, and JUMPS[direction][sq] the square two steps away, or -1 if the
+    // step leaves the board
+    private static final int[][] NEIGHBORS = new int[4][32];
+    private static final int[][] JUMPS = new int[4][32];
+
+    static {
+        for (int direction = 0; direction < 4; direction++) {
+            for (int sq = 0; sq < 32; sq++) {
+                int neighbor = step(1 << sq, direction);
+                int jump = step(neighbor, direction);
+                NEIGHBORS[direction][sq] = neighbor == 0 ? -1 : Integer.numberOfTrailingZeros(neighbor);
+                JUMPS[direction][sq] = jump == 0 ? -1 : Integer.numberOfTrailingZeros(jump);
+            }
+        }
+    }
+
+    /*
+     * What a piece is worth to the evaluation, by piece constant and square, from
+     * black's point of view: men are worth 5, black kings 80 and red kings 50,
+     * plus 2 for a man and 4 for a king on the side of the board. Red pieces count
+     * against black.
+     */
+    static final int[][] PIECE_VALUES = new int[5][32];
+
+    static {
+        for (int sq = 0; sq < 32; sq++) {
+            int edge = (EDGES >>> sq) & 1;
+            PIECE_VALUES[CheckersData.RED][sq] = -5 - 2 * edge;
+            PIECE_VALUES[CheckersData.RED_KING][sq] = -50 - 4 * edge;
+            PIECE_VALUES[CheckersData.BLACK][sq] = 5 + 2 * edge;
+            PIECE_VALUES[CheckersData.BLACK_KING][sq] = 80 + 4 * edge;
+        }
+    }
+
+    int red; // Squares holding a red man or a red king
+    int black; // Squares holding a black man or a black king
+    int kings; // Squares holding a king of either color
+    long hash; // Zobrist hash of the pieces on the board, kept up to date by every change
+    int material; // Sum of PIECE_VALUES over the pieces on the board, kept up to date like hash
+
+    /**
+     * Create an empty board.
+     */
+    BitBoard() {
+    }
+
+    /**
+     * Create a board holding the given piece masks.
+     */
+    BitBoard(int red, int black, int kings) {
+        this.red = red;
+        this.black = black;
+        this.kings = kings;
+        this.hash = Zobrist.hash(this);
+        for (int sq = 0; sq < 32; sq++)
+            this.material += PIECE_VALUES[pieceAt(sq)][sq];
+    }
+
+    /**
+     * Create a copy of another board.
+     */
+    BitBoard(BitBoard other) {
+        this.red = other.red;
+        this.black = other.black;
+        this.kings = other.kings;
+        this.hash = other.hash;
+        this.material = other.material;
+    }
+
+    /**
+     * Build a board from an 8x8 int array using the piece constants defined in
+     * CheckersData.
+     *
+     * @param gameState An 8x8 int array containing the pieces of a game at a
+     *                  certain state
+     */
+    static BitBoard fromArray(int[][] gameState) {
+        BitBoard bitBoard = new BitBoard();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                if (row % 2 != col % 2)
+                    bitBoard.setPiece(square(row, col), gameState[row][col]);
+            }
+        }
+        return bitBoard;
+    }
+
+    /**
+     * Return this board as an 8x8 int array using the piece constants defined in
+     * CheckersData.
+     */
+    int[][] toArray() {
+        int[][] gameState = new int[8][8];
+        for (int sq = 0; sq < 32; sq++) {
+            gameState[row(sq)][col(sq)] = pieceAt(sq);
+        }
+        return gameState;
+    }
+
+    /**
+     * Return the square number of the playable square in the given row and column.
+     */
+    static int square(int row, int col) {
+        return row * 4 + col / 2;
+    }
+
+    /**
+     * Return the row of the given square number.
+     */
+    static int row(int sq) {
+        return sq >> 2;
+    }
+
+    /**
+     * Return the column of the given square number.
+     */
+    static int col(int sq) {
+        return ((sq & 3) << 1) + (((sq >> 2) & 1) ^ 1);
+    }
+
+    /**
+     * Pack a move between two squares into an int. Bit 0 is always set so no move
+     * is 0, bits 1-5 hold the start square and bits 6-10 the end square. This is
+     * also the form the transposition table stores moves in.
+     *
+     * A sequence of jumps also uses bits 11-14 for the number of jumps after the
+     * first, and two bits per jump from bit 15 on for the direction of every jump
+     * but the last, which ends on the end square. A step or a single jump leaves
+     * them 0. All of it fits in the 31 bits the transposition table keeps.
+     */
+    static int move(int fromSq, int toSq) {
+        return 1 | (fromSq << 1) | (toSq << 6);
+    }
+
+    /**
+     * Pack a CheckersMove, with all the jumps linked to it, into an int (see
+     * move).
+     */
+    static int move(CheckersMove move) {
+        int fromSq = square(move.fromRow, move.fromCol);
+        int jumps = 0;
+        int path = 0;
+        CheckersMove last = move;
+        for (; last.next != null; last = last.next) {
+            int sq = square(last.fromRow, last.fromCol);
+            int to = square(last.toRow, last.toCol);
+            for (int direction = 0; direction < 4; direction++) {
+                if (JUMPS[direction][sq] == to)
+                    path |= direction << (15 + 2 * jumps);
+            }
+            jumps++;
+        }
+        return move(fromSq, square(last.toRow, last.toCol)) | (jumps << 11) | path;
+    }
+
+    /**
+     * Return the start square of a packed move.
+     */
+    static int moveFrom(int move) {
+        return (move >>> 1) & 31;
+    }
+
+    /**
+     * Return the end square of a packed move.
+     */
+    static int moveTo(int move) {
+        return (move >>> 6) & 31;
+    }
+
+    /**
+     * Return true if a packed move is a jump. A step crosses one row and every
+     * jump crosses two, so a move is a jump if it crosses an even number.
+     */
+    static boolean isJump(int move) {
+        return ((row(moveTo(move)) - row(moveFrom(move))) & 1) == 0;
+    }
+
+    /**
+     * Return the number of jumps of a packed move, 0 for a step.
+     */
+    static int jumpCount(int move) {
+        return isJump(move) ? ((move >>> 11) & 15) + 1 : 0;
+    }
+
+    /**
+     * Return the square a packed move stands on after the given number of jumps.
+     * After the last jump that is the end square.
+     */
+    static int landing(int move, int jumps) {
+        if (jumps > ((move >>> 11) & 15))
+            return moveTo(move);
+        int sq = moveFrom(move);
+        for (int i = 0; i < jumps; i++)
+            sq = JUMPS[(move >>> (15 + 2 * i)) & 3][sq];
+        return sq;
+    }
+
+    /**
+     * Unpack a packed move into a CheckersMove. A sequence of jumps becomes one
+     * CheckersMove per jump, linked through next.
+     */
+    static CheckersMove toCheckersMove(int move) {
+        int fromSq = moveFrom(move);
+        int jumps = Math.max(1, jumpCount(move));
+        CheckersMove first = null, last = null;
+        for (int i = 1; i <= jumps; i++) {
+            int toSq = landing(move, i);
+            CheckersMove jump = new CheckersMove(row(fromSq), col(fromSq), row(toSq), col(toSq));
+            if (last == null)
+                first = jump;
+            else
+                last.next = jump;
+            last = jump;
+            fromSq = toSq;
+        }
+        return first;
+    }
+
+    /**
+     * Return the contents of the given square as one of the CheckersData piece
+     * constants.
+     */
+    int pieceAt(int sq) {
+        int bit = 1 << sq;
+        if ((red & bit) != 0)
+            return (kings & bit) != 0 ? CheckersData.RED_KING : CheckersData.RED;
+        if ((black & bit) != 0)
+            return (kings & bit) != 0 ? CheckersData.BLACK_KING : CheckersData.BLACK;
+        return CheckersData.EMPTY;
+    }
+
+    /**
+     * Return the contents of the square in the specified row and column.
+     */
+    int pieceAt(int row, int col) {
+        return pieceAt(square(row, col));
+    }
+
+    /**
+     * Place a piece (one of the CheckersData piece constants) on the given square,
+     * replacing whatever was there.
+     */
+    void setPiece(int sq, int piece) {
+        int bit = 1 << sq;
+        int old = pieceAt(sq);
+        hash ^= Zobrist.pieceKey(old, sq) ^ Zobrist.pieceKey(piece, sq);
+        material += PIECE_VALUES[piece][sq] - PIECE_VALUES[old][sq];
+        red &= ~bit;
+        black &= ~bit;
+        kings &= ~bit;
+        if (piece == CheckersData.RED || piece == CheckersData.RED_KING)
+            red |= bit;
+        else if (piece == CheckersData.BLACK || piece == CheckersData.BLACK_KING)
+            black |= bit;
+        if (piece == CheckersData.RED_KING || piece == CheckersData.BLACK_KING)
+            kings |= bit;
+    }
+
+    /**
+     * Move every bit in the mask one diagonal step in the given direction. Bits
+     * that would leave the board are dropped.
+     */
+    static int step(int mask, int direction) {
+        switch (direction) {
+            case UP_LEFT:
+                return ((mask & EVEN_ROWS & ~ROW_0) >>> 4) | ((mask & ODD_ROWS & ~LEFT_EDGE) >>> 5);
+            case UP_RIGHT:
+                return ((mask & EVEN_ROWS & ~ROW_0 & ~RIGHT_EDGE) >>> 3) | ((mask & ODD_ROWS) >>> 4);
+            case DOWN_LEFT:
+                return ((mask & EVEN_ROWS) << 4) | ((mask & ODD_ROWS & ~ROW_7 & ~LEFT_EDGE) << 3);
+            default:
+                return ((mask & EVEN_ROWS & ~RIGHT_EDGE) << 5) | ((mask & ODD_ROWS & ~ROW_7) << 4);
+        }
+    }
+
+    /**
+     * Return the direction pointing the opposite way of the given direction.
+     */
+    static int opposite(int direction) {
+        return 3 - direction;
+    }
+
+    /**
+     * Return the squares holding pieces of the given player that are allowed to
+     * step in the given direction.
+     */
+    int movers(int player, int direction) {
+        if (player == CheckersData.RED)
+            return direction <= UP_RIGHT ? red : red & kings;
+        return direction >= DOWN_LEFT ? black : black & kings;
+    }
+
+    /**
+     * Return the squares holding pieces of the given player.
+     */
+    int pieces(int player) {
+        return player == CheckersData.RED ? red : black;
+    }
+
+    /**
+     * Return the squares holding pieces of the opponent of the given player.
+     */
+    int opponentPieces(int player) {
+        return player == CheckersData.RED ? black : red;
+    }
+
+    /**
+     * Return the empty squares.
+     */
+    int empty() {
+        return ~(red | black);
+    }
+
+    /**
+     * Write the legal moves of the specified player into moves, packed (see
+     * move). The rules are the same as CheckersData.getLegalMoves: if the player
+     * can jump, only jumps are generated. Every way a jump can go on jumping is a
+     * move of its own, taking the piece to the end of its turn.
+     *
+     * @param player color of the player, RED or BLACK
+     * @param moves  array of at least MAX_MOVES elements to write the moves into
+     * @return the number of moves written, 0 if the player has no legal moves
+     */
+    int generateMoves(int player, int[] moves) {
+        int empty = empty();
+        int opponent = opponentPieces(player);
+        int count = 0;
+
+        int jumpers = 0;
+        for (int direction = 0; direction < 4; direction++) {
+            int landing = step(step(movers(player, direction), direction) & opponent, direction) & empty;
+            while (landing != 0) {
+                int to = landing & -landing;
+                landing ^= to;
+                jumpers |= step(step(to, opposite(direction)), opposite(direction));
+            }
+        }
+        while (jumpers != 0) {
+            int sq = Integer.numberOfTrailingZeros(jumpers);
+            jumpers &= jumpers - 1;
+            count = addJumps(moves, count, player, sq, sq, (kings & (1 << sq)) != 0, opponent, empty, 0, 0);
+        }
+        if (count == 0) {
+            for (int direction = 0; direction < 4; direction++) {
+                int landing = step(movers(player, direction), direction) & empty;
+                count = addMoves(moves, count, landing, direction, 1);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Add every complete sequence of jumps the piece that started on fromSq can
+     * make from sq onwards. The jumped pieces are gone from opponent and empty, as
+     * they are from the board while a move is made one jump at a time.
+     *
+     * @param king  whether the piece is a king
+     * @param jumps number of jumps already made
+     * @param path  directions of the jumps already made (see move)
+     * @return the number of moves in the array afterwards
+     */
+    private int addJumps(int[] moves, int count, int player, int fromSq, int sq, boolean king, int opponent,
+            int empty, int jumps, int path) {
+        for (int direction = 0; direction < 4; direction++) {
+            int to = JUMPS[direction][sq];
+            if (to < 0 || (!king && (player == CheckersData.RED) != (direction <= UP_RIGHT)))
+                continue;
+            int jumped = 1 << NEIGHBORS[direction][sq];
+            if ((opponent & jumped) == 0 || (empty & (1 << to)) == 0)
+                continue;
+
+            // Men that reach the far row are crowned, which ends the move
+            boolean crowned = !king && ((1 << to) & (player == CheckersData.RED ? ROW_0 : ROW_7)) != 0;
+            int before = count;
+            if (!crowned && jumps + 1 < MAX_JUMPS)
+                count = addJumps(moves, count, player, fromSq, to, king, opponent & ~jumped,
+                        (empty | jumped | (1 << sq)) & ~(1 << to), jumps + 1, path | (direction << (15 + 2 * jumps)));
+            if (count == before && count < moves.length)
+                moves[count++] = move(fromSq, to) | (jumps << 11) | path;
+        }
+        return count;
+    }
+
+    /**
+     * Write the legal jumps that the piece on the given square can make into
+     * moves, packed (see move). Only the next jump is generated, not the rest of
+     * the sequence it might start. The color of the piece is read from this board.
+     *
+     * @param player The player of the current jump, either RED or BLACK.
+     * @param sq     The square the piece stands on
+     * @param moves  array of at least 4 elements to write the jumps into
+     * @return the number of jumps written
+     */
+    int generateJumpsFrom(int player, int sq, int[] moves) {
+        int empty = empty();
+        int opponent = opponentPieces(player);
+        int count = 0;
+
+        // Only one square is involved, so look its neighbors up instead of shifting
+        // whole masks
+        for (int direction = 0; direction < 4; direction++) {
+            int to = JUMPS[direction][sq];
+            if (to >= 0 && (movers(player, direction) & (1 << sq)) != 0
+                    && (opponent & (1 << NEIGHBORS[direction][sq])) != 0 && (empty & (1 << to)) != 0)
+                moves[count++] = move(sq, to);
+        }
+        return count;
+    }
+
+    /**
+     * Return an array containing all the legal CheckersMoves for the specified
+     * player. The rules are the same as CheckersData.getLegalMoves: if the player
+     * can jump, only jumps are returned, and if the player has no legal moves,
+     * null is returned.
+     *
+     * @param player color of the player, RED or BLACK
+     */
+    CheckersMove[] getLegalMoves(int player) {
+        if (player != CheckersData.RED && player != CheckersData.BLACK)
+            return null;
+        int[] moves = new int[MAX_MOVES];
+        return toCheckersMoves(moves, generateMoves(player, moves));
+    }
+
+    /**
+     * Return the legal jumps that the piece on the given row and column can make.
+     * The color of the piece is read from this board. If no jumps are possible,
+     * null is returned.
+     *
+     * @param player The player of the current jump, either RED or BLACK.
+     * @param row    row index of the start square.
+     * @param col    col index of the start square.
+     */
+    CheckersMove[] getLegalJumpsFrom(int player, int row, int col) {
+        if (player != CheckersData.RED && player != CheckersData.BLACK)
+            return null;
+        int[] moves = new int[4];
+        return toCheckersMoves(moves, generateJumpsFrom(player, square(row, col), moves));
+    }
+
+    private static CheckersMove[] toCheckersMoves(int[] moves, int count) {
+        if (count == 0)
+            return null;
+        CheckersMove[] checkersMoves = new CheckersMove[count];
+        for (int i = 0; i < count; i++)
+            checkersMoves[i] = toCheckersMove(moves[i]);
+        return checkersMoves;
+    }
+
+    /**
+     * Add a move for every bit in landing, walking back the given number of steps
+     * against the direction of travel to find the square the move started on.
+     *
+     * @return the number of moves in the array afterwards
+     */
+    private static int addMoves(int[] moves, int count, int landing, int direction, int distance) {
+        int back = opposite(direction);
+        while (landing != 0) {
+            int to = landing & -landing;
+            landing ^= to;
+            int from = to;
+            for (int i = 0; i < distance; i++)
+                from = step(from, back);
+            moves[count++] = move(Integer.numberOfTrailingZeros(from), Integer.numberOfTrailingZeros(to));
+        }
+        return count;
+    }
+
+    /**
+     * Make the specified move on this board. It is assumed that the move is legal.
+     * If the move is a jump, the jumped piece is removed from the board. If a
+     * piece moves to the last row on the opponent's side of the board, the piece
+     * becomes a king.
+     *
+     * @return true if the piece becomes a king, otherwise false
+     */
+    boolean makeMove(CheckersMove move) {
+        return makeMove(move(move));
+    }
+
+    /**
+     * Make a packed move (see move) on this board, like makeMove(CheckersMove). A
+     * sequence of jumps is made one jump after another.
+     *
+     * @return true if the piece becomes a king, otherwise false
+     */
+    boolean makeMove(int move) {
+        int jumps = (move >>> 11) & 15;
+        if (jumps == 0 || !isJump(move))
+            return makeStep(moveFrom(move), moveTo(move));
+        int sq = moveFrom(move);
+        for (int i = 0; i < jumps; i++) {
+            int to = JUMPS[(move >>> (15 + 2 * i)) & 3][sq];
+            makeStep(sq, to);
+            sq = to;
+        }
+        return makeStep(sq, moveTo(move));
+    }
+
+    /**
+     * Move the piece on fromSq to toSq, removing the piece in between if it is a
+     * jump and crowning it if it reaches the far row.
+     *
+     * @return true if the piece becomes a king, otherwise false
+     */
+    private boolean makeStep(int fromSq, int toSq) {
+        int from = 1 << fromSq;
+        int to = 1 << toSq;
+        int piece = pieceAt(fromSq);
+
+        if (isJump(move(fromSq, toSq))) {
+            int jumpedSq = jumpedSquare(fromSq, toSq);
+            int jumpedPiece = pieceAt(jumpedSq);
+            hash ^= Zobrist.pieceKey(jumpedPiece, jumpedSq);
+            material -= PIECE_VALUES[jumpedPiece][jumpedSq];
+            int jumped = ~(1 << jumpedSq);
+            red &= jumped;
+            black &= jumped;
+            kings &= jumped;
+        }
+
+        hash ^= Zobrist.pieceKey(piece, fromSq);
+        material -= PIECE_VALUES[piece][fromSq];
+        boolean isRed = (red & from) != 0;
+        if (isRed)
+            red ^= from | to;
+        else
+            black ^= from | to;
+        if ((kings & from) != 0) {
+            kings ^= from | to;
+            hash ^= Zobrist.pieceKey(piece, toSq);
+            material += PIECE_VALUES[piece][toSq];
+            return false;
+        }
+
+        // Men that reach the far row become kings
+        if (isRed && (to & ROW_0) != 0) {
+            kings |= to;
+            hash ^= Zobrist.pieceKey(CheckersData.RED_KING, toSq);
+            material += PIECE_VALUES[CheckersData.RED_KING][toSq];
+            return true;
+        } else if (!isRed && (to & ROW_7) != 0) {
+            kings |= to;
+            hash ^= Zobrist.pieceKey(CheckersData.BLACK_KING, toSq);
+            material += PIECE_VALUES[CheckersData.BLACK_KING][toSq];
+            return true;
+        }
+        hash ^= Zobrist.pieceKey(piece, toSq);
+        material += PIECE_VALUES[piece][toSq];
+        return false;
+    }
+
+    /**
+     * Make the specified move on this board and record how to take it back in
+     * undo. Any previous contents of undo are overwritten. It is assumed that the
+     * move is legal.
+     *
+     * @return true if the piece becomes a king, otherwise false
+     */
+    boolean makeMove(CheckersMove move, MoveUndo undo) {
+        return makeMove(move(move), undo);
+    }
+
+    /**
+     * Make a packed move (see move) and record how to take it back in undo, like
+     * makeMove(CheckersMove, MoveUndo).
+     *
+     * @return true if the piece becomes a king, otherwise false
+     */
+    boolean makeMove(int move, MoveUndo undo) {
+        undo.from = moveFrom(move);
+        undo.captured = 0;
+        undo.capturedKings = 0;
+        undo.promoted = false;
+        int jumps = (move >>> 11) & 15;
+        if (jumps == 0 || !isJump(move))
+            return continueMove(move, undo);
+        int sq = undo.from;
+        for (int i = 0; i < jumps; i++) {
+            int to = JUMPS[(move >>> (15 + 2 * i)) & 3][sq];
+            continueMove(move(sq, to), undo);
+            sq = to;
+        }
+        return continueMove(move(sq, moveTo(move)), undo);
+    }
+
+    /**
+     * Make another jump with the piece that was last moved and add it to the move
+     * already recorded in undo. This is used for the jumps of a sequence after the
+     * first, so that the whole sequence can be taken back with one call to
+     * unmakeMove.
+     *
+     * @return true if the piece becomes a king, otherwise false
+     */
+    boolean continueMove(CheckersMove move, MoveUndo undo) {
+        return continueMove(move(move), undo);
+    }
+
+    /**
+     * Continue the move recorded in undo with a packed jump (see move), like
+     * continueMove(CheckersMove, MoveUndo).
+     *
+     * @return true if the piece becomes a king, otherwise false
+     */
+    boolean continueMove(int move, MoveUndo undo) {
+        if (isJump(move)) {
+            int jumped = 1 << jumpedSquare(moveFrom(move), moveTo(move));
+            undo.captured |= jumped;
+            undo.capturedKings |= kings & jumped;
+        }
+        undo.to = moveTo(move);
+        boolean crowned = makeStep(moveFrom(move), moveTo(move));
+        undo.promoted |= crowned;
+        return crowned;
+    }
+
+    /**
+     * Return the square between the start and end squares of a jump.
+     */
+    private static int jumpedSquare(int fromSq, int toSq) {
+        return square((row(fromSq) + row(toSq)) >> 1, (col(fromSq) + col(toSq)) >> 1);
+    }
+
+    /**
+     * Take back the move recorded in undo. This must be the last move made on this
+     * board.
+     */
+    void unmakeMove(MoveUndo undo) {
+        int from = 1 << undo.from;
+        int to = 1 << undo.to;
+        int piece = pieceAt(undo.to);
+        boolean isRed = (red & to) != 0;
+        boolean isKing = (kings & to) != 0;
+
+        // Take the piece off the square it stopped on and put it back where it started
+        hash ^= Zobrist.pieceKey(piece, undo.to);
+        material -= PIECE_VALUES[piece][undo.to];
+        if (isRed)
+            red = (red & ~to) | from;
+        else
+            black = (black & ~to) | from;
+        kings &= ~to;
+        if (isKing && !undo.promoted)
+            kings |= from;
+        int original = pieceAt(undo.from);
+        hash ^= Zobrist.pieceKey(original, undo.from);
+        material += PIECE_VALUES[original][undo.from];
+
+        // Put back the pieces that were jumped
+        if (isRed)
+            black |= undo.captured;
+        else
+            red |= undo.captured;
+        kings |= undo.capturedKings;
+        int captured = undo.captured;
+        while (captured != 0) {
+            int sq = Integer.numberOfTrailingZeros(captured);
+            captured &= captured - 1;
+            int capturedPiece = pieceAt(sq);
+            hash ^= Zobrist.pieceKey(capturedPiece, sq);
+            material += PIECE_VALUES[capturedPiece][sq];
+        }
+    }
+
+    /**
+     * Return true if either player has no pieces remaining.
+     */
+    boolean isGameOver() {
+        return red == 0 || black == 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BitBoard))
+            return false;
+        BitBoard other = (BitBoard) obj;
+        return red == other.red && black == other.black && kings == other.kings;
+    }
+
+    @Override
+    public int hashCode() {
+        return (red * 31 + black) * 31 + kings;
+    }
+}
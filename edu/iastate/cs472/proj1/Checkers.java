@@ -9,11 +9,17 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 /**
  * This panel lets two users play checkers against each other. Red always starts
@@ -32,8 +38,9 @@ public class Checkers extends JPanel {
      * closes the window.
      */
     public static void main(String[] args) {
+        int noProgressMoves = args.length > 0 ? Integer.parseInt(args[0]) : PositionHistory.NO_PROGRESS_MOVES;
         JFrame window = new JFrame("Checkers");
-        Checkers content = new Checkers();
+        Checkers content = new Checkers(noProgressMoves);
         window.setContentPane(content);
         window.pack();
         Dimension screensize = Toolkit.getDefaultToolkit().getScreenSize();
@@ -49,6 +56,10 @@ public class Checkers extends JPanel {
 
     private JLabel message; // Label for displaying messages to the user.
 
+    private final int noProgressMoves; // A game in which neither player moves a
+    // man or jumps for this many moves each is a
+    // draw, or 0 for no limit.
+
     /**
      * The constructor creates the Board (which in turn creates and manages the
      * buttons and message label), adds all the components, and sets the bounds of
@@ -56,6 +67,15 @@ public class Checkers extends JPanel {
      * in the main Checkers class.)
      */
     public Checkers() {
+        this(PositionHistory.NO_PROGRESS_MOVES);
+    }
+
+    /**
+     * Like Checkers(), with the given limit for the no-progress rule, or 0 for
+     * none.
+     */
+    public Checkers(int noProgressMoves) {
+        this.noProgressMoves = noProgressMoves;
 
         setLayout(null); // I will do the layout myself.
         setPreferredSize(new Dimension(350, 250));
@@ -113,6 +133,19 @@ public class Checkers extends JPanel {
 
         AlphaBetaSearch player = new AlphaBetaSearch(); // AI player
 
+        PositionHistory history = new PositionHistory(noProgressMoves); // The
+        // positions of the game so far, for the
+        // no-progress rule. The AI also uses it to
+        // avoid repeating positions.
+
+        boolean reversible; // Whether the move of the current turn could be
+        // taken back, see PositionHistory.isReversible.
+
+        CompletableFuture<CheckersMove> aiMove; // The AI's search while it is
+        // thinking, otherwise null. The AI
+        // searches on its own thread so the
+        // window stays responsive.
+
         /**
          * Constructor. Create the buttons and label. Listens for mouse clicks and for
          * clicks on the buttons. Create the board and start the first game.
@@ -128,9 +161,47 @@ public class Checkers extends JPanel {
             message.setFont(new Font("Serif", Font.BOLD, 14));
             message.setForeground(Color.black);
             board = new CheckersData();
+            loadOpeningBook();
+            loadTablebase();
+            player.setPonder(true);
+            player.setSearchListener((depth, nodes, bestMove) -> SwingUtilities.invokeLater(() -> {
+                if (aiMove != null)
+                    message.setText("AI thinking:  depth " + depth + ",  " + nodes + " nodes,  "
+                            + Perft.moveName(bestMove));
+            }));
             doNewGame();
         }
 
+        /**
+         * Give the AI the opening book in the working directory, if there is one.
+         * Without it the AI simply searches every move.
+         */
+        void loadOpeningBook() {
+            Path file = Paths.get("opening.book");
+            if (!Files.exists(file))
+                return;
+            try {
+                player.setOpeningBook(OpeningBook.open(file));
+            } catch (IOException e) {
+                System.out.println("Could not read " + file + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * Give the AI the endgame tablebase in the working directory, if there is
+         * one. Without it the AI searches endgames like any other position.
+         */
+        void loadTablebase() {
+            Path file = Paths.get("endgame.tb");
+            if (!Files.exists(file))
+                return;
+            try {
+                player.setTablebase(EndgameTablebase.open(file));
+            } catch (IOException e) {
+                System.out.println("Could not read " + file + ": " + e.getMessage());
+            }
+        }
+
         /**
          * Respond to user's click on one of the two buttons.
          */
@@ -146,6 +217,7 @@ public class Checkers extends JPanel {
          * Start a new game
          */
         void doNewGame() {
+            cancelAIMove();
             if (gameInProgress) {
                 // This should not be possible, but it doesn't hurt to check.
                 message.setText("Finish the current game first!");
@@ -153,8 +225,10 @@ public class Checkers extends JPanel {
             }
             board.setUpGame(); // Set up the pieces.
             currentPlayer = CheckersData.RED; // RED moves first.
+            history.reset(board.toBitBoard());
             player.setCheckersData(board);
-            legalMoves = board.getLegalMoves(board.board, CheckersData.RED); // Get RED's legal moves.
+            player.setGameHistory(history);
+            legalMoves = CheckersData.getLegalMoves(board.board, CheckersData.RED); // Get RED's legal moves.
             selectedRow = -1; // RED has not yet selected a piece to move.
             message.setText("Red:  Make your move.");
             gameInProgress = true;
@@ -171,7 +245,8 @@ public class Checkers extends JPanel {
                 message.setText("There is no game in progress!");
                 return;
             }
-            if (currentPlayer == CheckersData.RED)
+            // Only the human can press the button, even while it is the AI's turn
+            if (currentPlayer == CheckersData.RED || aiMove != null)
                 gameOver("RED resigns.  BLACK wins.");
             else
                 gameOver("BLACK resigns.  RED wins.");
@@ -183,6 +258,8 @@ public class Checkers extends JPanel {
          * method is called when the game ends at any point in this class.
          */
         void gameOver(String str) {
+            cancelAIMove();
+            player.stopPondering();
             message.setText(str);
             newGameButton.setEnabled(true);
             resignButton.setEnabled(false);
@@ -252,6 +329,7 @@ public class Checkers extends JPanel {
          */
         void doMakeMove(CheckersMove move) {
 
+            reversible = PositionHistory.isReversible(board.toBitBoard(), move);
             boolean isKingJump = board.makeMove(move);
             repaint();
 
@@ -261,7 +339,7 @@ public class Checkers extends JPanel {
              * there are any, the player must jump. The same player continues moving.
              */
             if (!isKingJump && move.isJump()) {
-                legalMoves = board.getLegalJumpsFrom(board.board, currentPlayer, move.toRow, move.toCol);
+                legalMoves = CheckersData.getLegalJumpsFrom(board.board, currentPlayer, move.toRow, move.toCol);
                 if (legalMoves != null) {
                     if (currentPlayer == CheckersData.RED)
                         message.setText("RED:  You must continue jumping.");
@@ -277,36 +355,87 @@ public class Checkers extends JPanel {
             /*
              * The current player's turn is ended, so change to the other player. Get that
              * player's legal moves. If the player has no legal moves, then the game ends.
+             * Otherwise the AI starts thinking, and the game continues when it has
+             * chosen its move.
              */
-            if (currentPlayer == CheckersData.RED) {
-                currentPlayer = CheckersData.BLACK;
-                legalMoves = board.getLegalMoves(board.board, currentPlayer);
-                if (legalMoves == null) {
-                    gameOver("BLACK has no moves.  RED wins.");
-                } else {
-                    message.setText("BLACK:  Now AI's turn.");
-                }
+            currentPlayer = CheckersData.BLACK;
+            legalMoves = CheckersData.getLegalMoves(board.board, currentPlayer);
+            selectedRow = -1;
+            history.push(board.toBitBoard(), reversible);
+            if (legalMoves == null) {
+                gameOver("BLACK has no moves.  RED wins.");
+            } else if (history.isNoProgressDraw()) {
+                gameOver("No progress in " + noProgressMoves + " moves.  It's a draw.");
+            } else {
+                message.setText("BLACK:  Now AI's turn.");
+                startAIMove();
+            }
+            repaint();
+        } // end doMakeMove();
 
-                CheckersMove moveAI = player.makeMove(legalMoves);
-                boolean isKingJumpAI = board.makeMove(moveAI);
-                while (!isKingJumpAI && moveAI.isJump()) {
-                    legalMoves = board.getLegalJumpsFrom(board.board, currentPlayer, moveAI.toRow, moveAI.toCol);
-                    if (legalMoves != null) {
-                        message.setText("BLACK:  AI has another jump.");
-                        selectedRow = move.toRow; // Since only one piece can be moved, select it.
-                        selectedCol = move.toCol;
-                        repaint();
-                        moveAI = player.makeMove(legalMoves);
-                        board.makeMove(moveAI);
-                    } else {
-                        break;
-                    }
+        /**
+         * Start the AI searching for a move from the legalMoves of the current
+         * position. The search runs on a background thread, and doAIMove is called
+         * on the event dispatch thread when it has finished.
+         */
+        void startAIMove() {
+            CompletableFuture<CheckersMove> search = player.makeMoveAsync(legalMoves);
+            aiMove = search;
+            search.whenComplete((move, error) -> SwingUtilities.invokeLater(() -> {
+                if (aiMove != search) // The search was cancelled
+                    return;
+                aiMove = null;
+                if (error != null)
+                    gameOver("The AI failed:  " + error);
+                else
+                    doAIMove(move);
+            }));
+        }
+
+        /**
+         * Stop the AI's search, if it is thinking. Its move is thrown away.
+         */
+        void cancelAIMove() {
+            if (aiMove != null) {
+                CompletableFuture<CheckersMove> search = aiMove;
+                aiMove = null;
+                search.cancel(false);
+            }
+        }
+
+        /**
+         * This is called when the AI has chosen the specified move. Make the move,
+         * with every jump of a multi-jump, and give the turn back to RED. The AI
+         * only has to go on jumping if its move was cut short (see
+         * BitBoard.MAX_JUMPS).
+         */
+        void doAIMove(CheckersMove move) {
+            reversible = PositionHistory.isReversible(board.toBitBoard(), move);
+            boolean isKingJump = board.makeMove(move);
+            while (move.next != null) {
+                move = move.next;
+                isKingJump = board.makeMove(move);
+            }
+            if (!isKingJump && move.isJump()) {
+                legalMoves = CheckersData.getLegalJumpsFrom(board.board, currentPlayer, move.toRow, move.toCol);
+                if (legalMoves != null) {
+                    message.setText("BLACK:  AI has another jump.");
+                    selectedRow = move.toRow; // Since only one piece can be moved, select it.
+                    selectedCol = move.toCol;
+                    repaint();
+                    startAIMove();
+                    return;
                 }
-                repaint();
             }
 
             currentPlayer = CheckersData.RED;
-            legalMoves = board.getLegalMoves(board.board, currentPlayer);
+            legalMoves = CheckersData.getLegalMoves(board.board, currentPlayer);
+            history.push(board.toBitBoard(), reversible);
+            if (legalMoves != null && history.isNoProgressDraw()) {
+                gameOver("No progress in " + noProgressMoves + " moves.  It's a draw.");
+                repaint();
+                return;
+            }
             if (legalMoves == null)
                 gameOver("RED has no moves.  BLACK wins.");
             else if (legalMoves[0].isJump())
@@ -314,6 +443,9 @@ public class Checkers extends JPanel {
             else
                 message.setText("RED:  Make your move.");
 
+            // Let the AI think about its next move while RED thinks about this one
+            player.startPondering(legalMoves);
+
             /*
              * Set selectedRow = -1 to record that the player has not yet selected a piece
              * to move.
@@ -340,7 +472,7 @@ public class Checkers extends JPanel {
 
             /* Make sure the board is redrawn in its new state. */
             repaint();
-        } // end doMakeMove();
+        } // end doAIMove();
 
         /**
          * Draw a checkerboard pattern in gray and lightGray. Draw the checkers. If a
@@ -394,7 +526,7 @@ public class Checkers extends JPanel {
              * never null while a game is in progress.
              */
 
-            if (gameInProgress) {
+            if (gameInProgress && aiMove == null) {
                 /* First, draw a 2-pixel cyan border around the pieces that can be moved. */
                 g.setColor(Color.cyan);
                 for (CheckersMove legalMove : legalMoves) {
@@ -431,6 +563,8 @@ public class Checkers extends JPanel {
         public void mousePressed(MouseEvent evt) {
             if (!gameInProgress)
                 message.setText("Click \"New Game\" to start a new game.");
+            else if (aiMove != null)
+                message.setText("Wait for the AI to move.");
             else {
                 int col = (evt.getX() - 2) / 20;
                 int row = (evt.getY() - 2) / 20;
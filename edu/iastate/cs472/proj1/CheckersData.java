@@ -84,6 +84,24 @@ public class CheckersData {
         }
     }
 
+    /**
+     * Return a BitBoard holding the same pieces as this board.
+     */
+    BitBoard toBitBoard() {
+        return BitBoard.fromArray(board);
+    }
+
+    /**
+     * Replace the pieces on this board with the pieces on the given BitBoard.
+     */
+    void setBitBoard(BitBoard bitBoard) {
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                board[i][j] = i % 2 != j % 2 ? bitBoard.pieceAt(i, j) : EMPTY;
+            }
+        }
+    }
+
     /**
      * Return the contents of the square in the specified row and column.
      */
@@ -141,11 +159,15 @@ public class CheckersData {
      * moves or entirely of regular moves, since if the player can jump, only jumps
      * are legal moves.
      *
+     * Only gameState is read, never the board of this object, so the method can
+     * be called on any position from any number of threads at once as long as no
+     * thread changes gameState while it runs.
+     *
      * @param gameState an 8x8 int array containing the pieces of a game at a
      *                  certain state
      * @param player    color of the player, RED or BLACK
      */
-    CheckersMove[] getLegalMoves(int[][] gameState, int player) {
+    static CheckersMove[] getLegalMoves(int[][] gameState, int player) {
         // Use an arraylist to store legal moves because we don't know how many we'll
         // find.
         ArrayList<CheckersMove> legalMoves = new ArrayList<>();
@@ -180,7 +202,7 @@ public class CheckersData {
                         if (j + 1 <= 7 && i + increment >= 0 && i + increment <= 7
                                 && gameState[i + increment][j + 1] == EMPTY)
                             legalMoves.add(new CheckersMove(i, j, i + increment, j + 1));
-                        if (pieceAt(i, j) == KING) {
+                        if (gameState[i][j] == KING) {
                             // If the piece is a king, check for moves going backwards
                             if (j - 1 >= 0 && i - increment >= 0 && i - increment <= 7
                                     && gameState[i - increment][j - 1] == EMPTY)
@@ -216,7 +238,8 @@ public class CheckersData {
     /**
      * Return a list of the legal jumps that the specified player can make starting
      * from the specified row and column. If no such jumps are possible, null is
-     * returned. The logic is similar to the logic of the getLegalMoves() method.
+     * returned. The logic is similar to the logic of the getLegalMoves() method,
+     * and like it only reads gameState.
      *
      * @param gameState An 8x8 int array containing the pieces of a game at a
      *                  certain state
@@ -224,7 +247,7 @@ public class CheckersData {
      * @param row       row index of the start square.
      * @param col       col index of the start square.
      */
-    CheckersMove[] getLegalJumpsFrom(int[][] gameState, int player, int row, int col) {
+    static CheckersMove[] getLegalJumpsFrom(int[][] gameState, int player, int row, int col) {
         // Use an arraylist to store legal moves because we don't know how many we'll
         // find.
         ArrayList<CheckersMove> legalMoves = new ArrayList<>();
@@ -268,7 +291,7 @@ public class CheckersData {
 
         // If the piece is a king, we need to check for jumps in both directions (jumps
         // going "up" the board for red kings and "down" the board for black kings)
-        if (pieceAt(row, col) == KING) {
+        if (gameState[row][col] == KING) {
             if (col - 1 >= 0 && row - increment >= 0 && row - increment <= 7
                     && (gameState[row - increment][col - 1] == opponent
                             || gameState[row - increment][col - 1] == OPPONENT_KING)) {
@@ -4,11 +4,14 @@ package edu.iastate.cs472.proj1;
  * A CheckersMove object represents a move in the game of Checkers.
  * It holds the row and column of the piece that is to be moved
  * and the row and column of the square to which it is to be moved.
+ * A jump that goes on to jump again links to the rest of the jumps
+ * through next, so a whole multi-jump can be one CheckersMove.
  * (This class makes no guarantee that the move is legal.)
  */
 public class CheckersMove {
     int fromRow, fromCol;  // Position of piece to be moved.
     int toRow, toCol;      // Square it is to move to.
+    CheckersMove next;     // The next jump of a multi-jump, or null.
     CheckersMove(int r1, int c1, int r2, int c2) {
         // Constructor.  Just set the values of the instance variables.
         fromRow = r1;
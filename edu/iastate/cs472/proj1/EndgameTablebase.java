@@ -0,0 +1,267 @@
+package edu.iastate.cs472.proj1;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads an endgame tablebase written by TablebaseGenerator. The tablebase holds
+ * the exact result (win, loss or draw, and the number of plies to the end) of
+ * every position with a small number of pieces, so the search can stop as soon
+ * as it reaches one instead of searching endless king moves. The file is memory
+ * mapped, so probing does not copy it onto the heap and many searches can share
+ * it.
+ *
+ * Positions are grouped into tables by their material: the number of red men,
+ * red kings, black men and black kings. Within a table a position is found by
+ * ranking where each group of pieces stands (see index), and every table stores
+ * one byte per position for red to move followed by one byte per position for
+ * black to move. The byte is 0 for a draw, 1 to 127 for a win of the player to
+ * move in that many plies, and 128 plus n for a loss of the player to move in n
+ * plies. TablebaseGenerator refuses to store a longer distance rather than store
+ * a wrong one.
+ *
+ * File layout (big endian):
+ *
+ * <pre>
+ * int  MAGIC
+ * int  largest number of pieces in the file
+ * int  number of tables
+ * for every table: int material, long positions per player, long offset of its data
+ * table data
+ * </pre>
+ */
+public class EndgameTablebase {
+
+    static final int MAGIC = 0x434B5442; // "CKTB"
+
+    static final int NOT_FOUND = -1;
+    static final int DRAW = 0;
+    static final int LOSS = 128;
+
+    // Binomial coefficients, BINOMIAL[n][k] is n choose k
+    static final long[][] BINOMIAL = new long[33][33];
+
+    static {
+        for (int n = 0; n <= 32; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= n; k++)
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+        }
+    }
+
+    private final int maxPieces;
+    private final MappedByteBuffer[] tables = new MappedByteBuffer[1 << 16];
+    private final long[] sizes = new long[1 << 16];
+
+    private EndgameTablebase(int maxPieces) {
+        this.maxPieces = maxPieces;
+    }
+
+    /**
+     * Map a tablebase file into memory.
+     */
+    public static EndgameTablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 12);
+            header.order(ByteOrder.BIG_ENDIAN);
+            if (header.getInt() != MAGIC)
+                throw new IOException("Not an endgame tablebase: " + file);
+            EndgameTablebase tablebase = new EndgameTablebase(header.getInt());
+            int count = header.getInt();
+
+            MappedByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, 12, count * 20L);
+            for (int i = 0; i < count; i++) {
+                int material = directory.getInt();
+                long size = directory.getLong();
+                long offset = directory.getLong();
+                tablebase.sizes[material] = size;
+                tablebase.tables[material] = channel.map(FileChannel.MapMode.READ_ONLY, offset, 2 * size);
+            }
+            // The mappings stay valid after the channel is closed
+            return tablebase;
+        }
+    }
+
+    /**
+     * Return the largest number of pieces a position may have to be found in this
+     * tablebase.
+     */
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Look up a position.
+     *
+     * @param gameState The position
+     * @param player    The player to move, RED or BLACK
+     * @return the stored result for the player to move, or NOT_FOUND if the
+     *         position has too many pieces or its table is missing
+     */
+    public int probe(BitBoard gameState, int player) {
+        if (gameState.red == 0 || gameState.black == 0
+                || Integer.bitCount(gameState.red | gameState.black) > maxPieces)
+            return NOT_FOUND;
+        int material = material(gameState);
+        MappedByteBuffer table = tables[material];
+        if (table == null)
+            return NOT_FOUND;
+        long index = index(gameState);
+        if (player == CheckersData.BLACK)
+            index += sizes[material];
+        return table.get((int) index) & 0xFF;
+    }
+
+    static boolean isWin(int result) {
+        return result > DRAW && result < LOSS;
+    }
+
+    static boolean isLoss(int result) {
+        return result >= LOSS;
+    }
+
+    /**
+     * Return the number of plies until the game ends for a win or loss result.
+     */
+    static int distance(int result) {
+        return result >= LOSS ? result - LOSS : result;
+    }
+
+    /**
+     * Return the result of a win in the given number of plies.
+     *
+     * @throws IllegalArgumentException if the distance is longer than a byte can
+     *                                  store
+     */
+    static int win(int distance) {
+        if (distance < 1 || distance > LOSS - 1)
+            throw new IllegalArgumentException("Win distance out of range: " + distance);
+        return distance;
+    }
+
+    /**
+     * Return the result of a loss in the given number of plies.
+     *
+     * @throws IllegalArgumentException if the distance is longer than a byte can
+     *                                  store
+     */
+    static int loss(int distance) {
+        if (distance < 0 || distance > 255 - LOSS)
+            throw new IllegalArgumentException("Loss distance out of range: " + distance);
+        return LOSS + distance;
+    }
+
+    /**
+     * Return a number identifying the material of a position: the counts of red
+     * men, red kings, black men and black kings, four bits each.
+     */
+    static int material(BitBoard gameState) {
+        return material(Integer.bitCount(gameState.red & ~gameState.kings),
+                Integer.bitCount(gameState.red & gameState.kings), Integer.bitCount(gameState.black & ~gameState.kings),
+                Integer.bitCount(gameState.black & gameState.kings));
+    }
+
+    static int material(int redMen, int redKings, int blackMen, int blackKings) {
+        return redMen | (redKings << 4) | (blackMen << 8) | (blackKings << 12);
+    }
+
+    /**
+     * Return the number of positions (for one player to move) in the table of the
+     * given material. Red kings are placed first, then black kings, red men and
+     * black men, each group on the squares the groups before it left free.
+     */
+    static long tableSize(int material) {
+        int redMen = material & 0xF, redKings = (material >> 4) & 0xF;
+        int blackMen = (material >> 8) & 0xF, blackKings = (material >> 12) & 0xF;
+        return BINOMIAL[32][redKings] * BINOMIAL[32 - redKings][blackKings]
+                * BINOMIAL[32 - redKings - blackKings][redMen]
+                * BINOMIAL[32 - redKings - blackKings - redMen][blackMen];
+    }
+
+    /**
+     * Return the position of a board within the table of its material.
+     */
+    static long index(BitBoard gameState) {
+        int redKings = gameState.red & gameState.kings;
+        int blackKings = gameState.black & gameState.kings;
+        int redMen = gameState.red & ~gameState.kings;
+        int blackMen = gameState.black & ~gameState.kings;
+
+        int free = -1;
+        long index = rank(redKings, free);
+        free &= ~redKings;
+        index = index * BINOMIAL[Integer.bitCount(free)][Integer.bitCount(blackKings)] + rank(blackKings, free);
+        free &= ~blackKings;
+        index = index * BINOMIAL[Integer.bitCount(free)][Integer.bitCount(redMen)] + rank(redMen, free);
+        free &= ~redMen;
+        index = index * BINOMIAL[Integer.bitCount(free)][Integer.bitCount(blackMen)] + rank(blackMen, free);
+        return index;
+    }
+
+    /**
+     * Build the board at the given position of the table of the given material.
+     * This is the inverse of index.
+     */
+    static BitBoard position(int material, long index) {
+        int[] counts = { (material >> 4) & 0xF, (material >> 12) & 0xF, material & 0xF, (material >> 8) & 0xF };
+        long[] radix = new long[4];
+        int free = 32;
+        for (int group = 0; group < 4; group++) {
+            radix[group] = BINOMIAL[free][counts[group]];
+            free -= counts[group];
+        }
+        long[] ranks = new long[4];
+        for (int group = 3; group >= 0; group--) {
+            ranks[group] = index % radix[group];
+            index /= radix[group];
+        }
+
+        int freeSquares = -1;
+        int[] masks = new int[4];
+        for (int group = 0; group < 4; group++) {
+            masks[group] = unrank(ranks[group], counts[group], freeSquares);
+            freeSquares &= ~masks[group];
+        }
+        return new BitBoard(masks[0] | masks[2], masks[1] | masks[3], masks[0] | masks[1]);
+    }
+
+    /**
+     * Rank a set of squares among the free squares using the combinatorial number
+     * system.
+     */
+    private static long rank(int squares, int free) {
+        long rank = 0;
+        int i = 0;
+        while (squares != 0) {
+            int sq = Integer.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+            int position = Integer.bitCount(free & ((1 << sq) - 1));
+            rank += BINOMIAL[position][++i];
+        }
+        return rank;
+    }
+
+    /**
+     * Return the set of count squares among the free squares with the given rank.
+     */
+    private static int unrank(long rank, int count, int free) {
+        int squares = 0;
+        for (int i = count; i > 0; i--) {
+            int position = i - 1;
+            while (BINOMIAL[position + 1][i] <= rank)
+                position++;
+            rank -= BINOMIAL[position][i];
+
+            // Find the free square with this position
+            int remaining = free;
+            for (int skip = 0; skip < position; skip++)
+                remaining &= remaining - 1;
+            squares |= remaining & -remaining;
+        }
+        return squares;
+    }
+}
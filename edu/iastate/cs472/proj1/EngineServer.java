@@ -0,0 +1,492 @@
+package edu.iastate.cs472.proj1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Plays many games of checkers at once over HTTP, without the window. Every
+ * game is a session in which the client plays red and the AI plays black, as in
+ * the Checkers window. Requests are handled on virtual threads where the JDK has
+ * them (Java 21 and later) and on a cached pool of platform threads otherwise,
+ * so waiting clients cost almost nothing. The searches themselves run on a fixed
+ * pool of searchThreads threads shared by every session. Each of those threads
+ * keeps its own AlphaBetaSearch and transposition table, the tables together
+ * taking TABLE_ENTRIES entries, and all of them share one EvaluationCache, the
+ * opening book and the endgame tablebase.
+ *
+ * The server listens on the loopback address only, unless it is given another
+ * address to bind to, since anyone who can reach it can start games and
+ * searches.
+ *
+ * Admission control: at most maxSessions games may be open, and at most
+ * maxPendingSearches AI moves may be searching or waiting for a search thread.
+ * A request beyond either limit is answered with 503 and a Retry-After header.
+ * Games idle for longer than SESSION_TIMEOUT_MILLIS are closed.
+ *
+ * Time budget: the AI has clockMillis for the whole of each game. Each move
+ * gets a share of what is left, and the search time it used is taken off the
+ * clock. Once the clock has run out the AI still moves, searching to depth 1.
+ *
+ * The API, with every response a JSON object describing the game:
+ *
+ * <pre>
+ * POST   /games              start a game, 201
+ * GET    /games/{id}         the game
+ * POST   /games/{id}/moves   play the move in the body, like "c3-d4" or "c3xe5xg7",
+ *                            and the AI's reply
+ * DELETE /games/{id}         close the game, 204
+ * GET    /status             open games, running searches and the cache hit rate
+ * </pre>
+ *
+ * The position of a game is a string of 32 characters, one for each dark square
+ * in BitBoard square order (row 8 from the left, then row 7, and so on): '.' for
+ * an empty square, 'r' and 'b' for men and 'R' and 'B' for kings.
+ *
+ * Usage:
+ *
+ * <pre>
+ * java edu.iastate.cs472.proj1.EngineServer [port] [search threads] [max games] [max pending searches]
+ *         [depth] [ms per game] [bind address]
+ * </pre>
+ */
+public class EngineServer {
+
+    static final long SESSION_TIMEOUT_MILLIS = 30 * 60 * 1000;
+
+    // The AI plans to spread what is left of its clock over this many more moves
+    static final int MOVES_TO_GO = 20;
+
+    // Transposition table entries shared out among the search threads, 16 bytes
+    // each
+    static final int TABLE_ENTRIES = 1 << 22;
+
+    /**
+     * One game. Only the thread holding lock reads or changes it, apart from
+     * lastUsed, and while that thread waits for the AI's move the search thread
+     * does.
+     */
+    static class Session {
+        final String id = UUID.randomUUID().toString();
+        final BitBoard gameState = new CheckersData().toBitBoard();
+        final PositionHistory history = new PositionHistory(PositionHistory.NO_PROGRESS_MOVES);
+        final ReentrantLock lock = new ReentrantLock();
+        int player = CheckersData.RED;
+        int turn;
+        int winner = CheckersData.EMPTY;
+        boolean over;
+        long clockMillis;
+        String lastMove;
+        SearchStats lastStats;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Session(long clockMillis) {
+            this.clockMillis = clockMillis;
+            history.reset(gameState);
+        }
+    }
+
+    private final int searchDepth;
+    private final long clockMillis;
+    private final int tableSize; // Entries in the table of each search thread
+    private final int maxPendingSearches;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Semaphore sessionPermits;
+    private final Semaphore searchPermits;
+
+    private final HttpServer server;
+    private final ExecutorService requestExecutor = newRequestExecutor();
+    private final ExecutorService searchPool;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "EngineServer sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Each search thread keeps its own search. Positions from different games
+    // may share its transposition table, since an entry depends only on the
+    // position.
+    private final ThreadLocal<AlphaBetaSearch> searches = ThreadLocal.withInitial(this::createSearch);
+    private final EvaluationCache evaluationCache = new EvaluationCache(1 << 20);
+    private OpeningBook openingBook;
+    private EndgameTablebase tablebase;
+
+    /**
+     * Create a server listening on the loopback address.
+     */
+    public EngineServer(int port, int searchThreads, int maxSessions, int maxPendingSearches, int searchDepth,
+            long clockMillis) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, searchThreads, maxSessions, maxPendingSearches, searchDepth,
+                clockMillis);
+    }
+
+    /**
+     * Create a server listening on the given address.
+     */
+    public EngineServer(InetAddress bindAddress, int port, int searchThreads, int maxSessions,
+            int maxPendingSearches, int searchDepth, long clockMillis) throws IOException {
+        this.searchDepth = searchDepth;
+        this.clockMillis = clockMillis;
+        tableSize = Integer.highestOneBit(Math.max(1, TABLE_ENTRIES / searchThreads));
+        this.maxPendingSearches = maxPendingSearches;
+        sessionPermits = new Semaphore(maxSessions);
+        searchPermits = new Semaphore(maxPendingSearches);
+        searchPool = Executors.newFixedThreadPool(searchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "EngineServer search");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.setExecutor(requestExecutor);
+        server.createContext("/games", this::handleGames);
+        server.createContext("/status", this::handleStatus);
+    }
+
+    /**
+     * Return an executor that runs every task on a new virtual thread, or on a
+     * cached pool of platform threads if this JDK has no virtual threads.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "EngineServer request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private AlphaBetaSearch createSearch() {
+        AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(tableSize));
+        search.setSearchDepth(searchDepth);
+        search.setEvaluationCache(evaluationCache);
+        search.setOpeningBook(openingBook);
+        search.setTablebase(tablebase);
+        return search;
+    }
+
+    /**
+     * Answer positions found in the given opening book without searching. Must be
+     * called before start.
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Score positions found in the given endgame tablebase exactly instead of
+     * searching them. Must be called before start.
+     */
+    public void setTablebase(EndgameTablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Start accepting requests.
+     */
+    public void start() {
+        sweeper.scheduleWithFixedDelay(this::closeIdleSessions, 1, 1, TimeUnit.MINUTES);
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests. Searches already running or waiting for a search
+     * thread finish on their own, so every game is left with its AI move played.
+     */
+    public void stop() {
+        server.stop(0);
+        sweeper.shutdownNow();
+        searchPool.shutdown();
+        requestExecutor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void closeIdleSessions() {
+        long cutoff = System.currentTimeMillis() - SESSION_TIMEOUT_MILLIS;
+        for (Session session : sessions.values()) {
+            if (session.lastUsed < cutoff)
+                close(session.id);
+        }
+    }
+
+    private void close(String id) {
+        if (sessions.remove(id) != null)
+            sessionPermits.release();
+    }
+
+    private void handleGames(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            // path is "", "games", then the id and "moves" if present. The context
+            // also receives any other path that starts with "/games".
+            if (path.length < 2 || path.length > 4 || !path[1].equals("games")
+                    || (path.length == 4 && !path[3].equals("moves"))) {
+                respond(exchange, 404, error("Not found"));
+                return;
+            }
+            if (path.length == 2) {
+                if (method.equals("POST"))
+                    newGame(exchange);
+                else
+                    respond(exchange, 405, error("Method not allowed"));
+                return;
+            }
+            Session session = sessions.get(path[2]);
+            if (session == null) {
+                respond(exchange, 404, error("No such game"));
+                return;
+            }
+            session.lastUsed = System.currentTimeMillis();
+            if (path.length == 3 && method.equals("GET")) {
+                session.lock.lock();
+                try {
+                    respond(exchange, 200, describe(session));
+                } finally {
+                    session.lock.unlock();
+                }
+            } else if (path.length == 3 && method.equals("DELETE")) {
+                close(session.id);
+                respond(exchange, 204, null);
+            } else if (path.length == 4 && method.equals("POST")) {
+                String move = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).trim();
+                playMove(exchange, session, move);
+            } else {
+                respond(exchange, 405, error("Method not allowed"));
+            }
+        } catch (RuntimeException e) {
+            respond(exchange, 500, error(e.toString()));
+        }
+    }
+
+    private void newGame(HttpExchange exchange) throws IOException {
+        if (!sessionPermits.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "60");
+            respond(exchange, 503, error("Too many games"));
+            return;
+        }
+        Session session = new Session(clockMillis);
+        sessions.put(session.id, session);
+        respond(exchange, 201, describe(session));
+    }
+
+    /**
+     * Play the client's move in a game, then let the AI reply on the search pool
+     * while this thread waits.
+     */
+    private void playMove(HttpExchange exchange, Session session, String name) throws IOException {
+        // One move at a time per game: a second request while the AI is thinking is
+        // refused rather than queued
+        if (!session.lock.tryLock()) {
+            respond(exchange, 409, error("The AI is thinking"));
+            return;
+        }
+        try {
+            if (session.over || session.player != CheckersData.RED) {
+                respond(exchange, 409, error("Not red's turn"));
+                return;
+            }
+            CheckersMove move = findMove(session.gameState.getLegalMoves(CheckersData.RED), name);
+            if (move == null) {
+                respond(exchange, 400, error("Illegal move: " + name));
+                return;
+            }
+            // Check there is room for the AI's search before changing the game, so a
+            // refused request leaves the game as it was
+            if (!searchPermits.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, error("Too many searches"));
+                return;
+            }
+            boolean interrupted = false;
+            try {
+                play(session, move);
+                if (!session.over)
+                    interrupted = awaitAI(session);
+            } finally {
+                searchPermits.release();
+            }
+            respond(exchange, 200, describe(session));
+            // Only now, as the response would fail on an interrupted channel
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Let the AI reply on the search pool and wait until it has played. The
+     * search can't be stopped part way and plays its move into the session, so
+     * the wait goes on through an interrupt: the session lock must be held until
+     * the game has stopped changing.
+     *
+     * @return true if this thread was interrupted while it waited
+     */
+    private boolean awaitAI(Session session) {
+        Future<?> reply = searchPool.submit(() -> playAI(session));
+        boolean interrupted = false;
+        while (true) {
+            try {
+                reply.get();
+                return interrupted;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("The search failed", e.getCause());
+            }
+        }
+    }
+
+    private static CheckersMove findMove(CheckersMove[] legalMoves, String name) {
+        if (legalMoves != null) {
+            for (CheckersMove move : legalMoves) {
+                if (Perft.moveName(move).equals(name))
+                    return move;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find and play the AI's move in a game, on a thread of the search pool.
+     */
+    private void playAI(Session session) {
+        AlphaBetaSearch search = searches.get();
+        search.setTimeBudget(Math.max(1, session.clockMillis / MOVES_TO_GO));
+        long startTime = System.nanoTime();
+        CheckersMove move = search.findBestMove(new BitBoard(session.gameState),
+                session.gameState.getLegalMoves(CheckersData.BLACK), CheckersData.BLACK, session.history);
+        session.clockMillis = Math.max(0, session.clockMillis - (System.nanoTime() - startTime) / 1_000_000);
+        session.lastStats = search.getLastStats();
+        play(session, move);
+    }
+
+    /**
+     * Make a move for the player to move, then pass the turn and check whether the
+     * game is over. A game that reaches SelfPlay.MAX_TURNS turns is a draw, and so
+     * is one that breaks the no-progress rule (see PositionHistory).
+     */
+    private static void play(Session session, CheckersMove move) {
+        boolean reversible = PositionHistory.isReversible(session.gameState, move);
+        session.gameState.makeMove(move);
+        session.history.push(session.gameState, reversible);
+        session.lastMove = Perft.moveName(move);
+        session.turn++;
+        session.player = session.player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED;
+        if (session.gameState.getLegalMoves(session.player) == null) {
+            session.winner = session.player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED;
+            session.over = true;
+        } else if (session.turn >= SelfPlay.MAX_TURNS || session.history.isNoProgressDraw()) {
+            session.over = true;
+        }
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/status")) {
+            respond(exchange, 404, error("Not found"));
+            return;
+        }
+        String status = String.format("{\"games\":%d,\"searches\":%d,\"evaluationCacheHitRate\":%.3f}",
+                sessions.size(), maxPendingSearches - searchPermits.availablePermits(),
+                evaluationCache.getHitRate());
+        respond(exchange, 200, status);
+    }
+
+    private static String describe(Session session) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"id\":\"").append(session.id).append('"');
+        json.append(",\"turn\":").append(session.turn);
+        json.append(",\"toMove\":\"").append(session.player == CheckersData.RED ? "red" : "black").append('"');
+        json.append(",\"position\":\"").append(position(session.gameState)).append('"');
+        json.append(",\"legalMoves\":[");
+        CheckersMove[] legalMoves = session.over ? null : session.gameState.getLegalMoves(session.player);
+        if (legalMoves != null) {
+            for (int i = 0; i < legalMoves.length; i++)
+                json.append(i > 0 ? "," : "").append('"').append(Perft.moveName(legalMoves[i])).append('"');
+        }
+        json.append(']');
+        if (session.lastMove != null)
+            json.append(",\"lastMove\":\"").append(session.lastMove).append('"');
+        if (session.lastStats != null)
+            json.append(",\"depth\":").append(session.lastStats.getDepth()).append(",\"nodes\":")
+                    .append(session.lastStats.getNodes());
+        json.append(",\"clock\":").append(session.clockMillis);
+        if (session.over)
+            json.append(",\"result\":\"").append(session.winner == CheckersData.RED ? "red"
+                    : session.winner == CheckersData.BLACK ? "black" : "draw").append('"');
+        return json.append('}').toString();
+    }
+
+    private static String position(BitBoard gameState) {
+        char[] squares = new char[32];
+        for (int sq = 0; sq < 32; sq++)
+            squares[sq] = ".rRbB".charAt(gameState.pieceAt(sq));
+        return new String(squares);
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int searchThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxSessions = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        int maxPendingSearches = args.length > 3 ? Integer.parseInt(args[3]) : 4 * searchThreads;
+        int depth = args.length > 4 ? Integer.parseInt(args[4]) : 12;
+        long clockMillis = args.length > 5 ? Long.parseLong(args[5]) : 60_000;
+        InetAddress bindAddress = args.length > 6 ? InetAddress.getByName(args[6]) : InetAddress.getLoopbackAddress();
+
+        EngineServer server = new EngineServer(bindAddress, port, searchThreads, maxSessions, maxPendingSearches,
+                depth, clockMillis);
+        Path book = Paths.get("opening.book");
+        if (Files.exists(book))
+            server.setOpeningBook(OpeningBook.open(book));
+        Path tablebase = Paths.get("endgame.tb");
+        if (Files.exists(tablebase))
+            server.setTablebase(EndgameTablebase.open(tablebase));
+        server.start();
+        System.out.println("Listening on " + bindAddress.getHostAddress() + " port " + server.getPort());
+    }
+}
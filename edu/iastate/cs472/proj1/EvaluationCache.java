@@ -0,0 +1,154 @@
+package edu.iastate.cs472.proj1;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size hash table of evaluateBoard scores, so a position that many
+ * branches of the search reach is only evaluated once. Positions are identified
+ * by the Zobrist hash of their pieces (BitBoard.hash), since the evaluation does
+ * not depend on the player to move.
+ *
+ * Like TranspositionTable, each slot is a pair of longs, the entry and the key
+ * XORed with the entry, so the table needs no locks. Several threads (and
+ * several searches, for example the games of SelfPlay) can share one cache: a
+ * slot torn by two threads writing at once simply fails the key check and reads
+ * as a miss.
+ *
+ * Each entry is packed into a single long:
+ *
+ * <pre>
+ *  bits  0-31  score (signed)
+ *  bit  63     set for every stored entry, so an empty slot reads as 0
+ * </pre>
+ */
+public class EvaluationCache {
+
+    /**
+     * Decides where a new score goes.
+     */
+    public enum ReplacementPolicy {
+        /** Every position maps to one slot, and every store overwrites it. */
+        ALWAYS,
+        /**
+         * Every position maps to a bucket of two slots. A new score goes in the
+         * first slot and moves the score that was there to the second, so the
+         * older of the two is the one dropped.
+         */
+        TWO_WAY
+    }
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private final ReplacementPolicy policy;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Create a cache with the given number of entries using the TWO_WAY
+     * replacement policy.
+     *
+     * @param size number of entries, must be a power of two of at least 2
+     */
+    public EvaluationCache(int size) {
+        this(size, ReplacementPolicy.TWO_WAY);
+    }
+
+    /**
+     * Create a cache with the given number of entries. Each entry takes 16 bytes.
+     *
+     * @param size   number of entries, must be a power of two of at least 2
+     * @param policy where new scores are stored
+     */
+    public EvaluationCache(int size, ReplacementPolicy policy) {
+        if (size < 2 || Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("Cache size must be a power of two of at least 2: " + size);
+        keys = new long[size];
+        entries = new long[size];
+        this.policy = policy;
+        mask = policy == ReplacementPolicy.TWO_WAY ? size - 2 : size - 1;
+    }
+
+    /**
+     * Return the entry stored for the given position, or 0 if there is none. Use
+     * score to read the score of the entry.
+     *
+     * @param key Zobrist hash of the pieces of the position
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = entries[index];
+        if (entry != 0 && (keys[index] ^ entry) == key) {
+            hits.increment();
+            return entry;
+        }
+        if (policy == ReplacementPolicy.TWO_WAY) {
+            entry = entries[index + 1];
+            if (entry != 0 && (keys[index + 1] ^ entry) == key) {
+                hits.increment();
+                return entry;
+            }
+        }
+        misses.increment();
+        return 0;
+    }
+
+    /**
+     * Store the score of a position.
+     *
+     * @param key Zobrist hash of the pieces of the position
+     */
+    public void store(long key, int score) {
+        int index = (int) key & mask;
+        if (policy == ReplacementPolicy.TWO_WAY) {
+            long old = entries[index];
+            if (old != 0 && (keys[index] ^ old) != key) {
+                keys[index + 1] = keys[index];
+                entries[index + 1] = old;
+            }
+        }
+        long entry = (score & 0xFFFFFFFFL) | (1L << 63);
+        keys[index] = key ^ entry;
+        entries[index] = entry;
+    }
+
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Remove every score from the cache. The counters are kept.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, 0);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Return the fraction of probes that found their position, or 0 if there have
+     * been none.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long probes = hits + getMisses();
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * Set the hit and miss counters back to 0.
+     */
+    public void resetCounters() {
+        hits.reset();
+        misses.reset();
+    }
+}
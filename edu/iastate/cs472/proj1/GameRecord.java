@@ -0,0 +1,433 @@
+package edu.iastate.cs472.proj1;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A game of checkers: the position it started from, the player to move there,
+ * the moves played, packed as ints (see BitBoard.move), and the result.
+ *
+ * Games and positions are stored in binary by GameRecordWriter and read back by
+ * GameRecordReader. A position takes 13 bytes (big endian):
+ *
+ * <pre>
+ * int  squares holding a red piece
+ * int  squares holding a black piece
+ * int  squares holding a king
+ * byte player to move, RED or BLACK, plus GAME_FLAG if a game follows
+ * </pre>
+ *
+ * A game is its start position with GAME_FLAG set, followed by:
+ *
+ * <pre>
+ * byte  result: the winner, EMPTY for a draw or UNFINISHED
+ * short number of moves
+ * int   every move, packed
+ * </pre>
+ *
+ * Games can also be read and written as PDN, the text format other checkers
+ * programs use. PDN numbers the dark squares 1 to 32 in BitBoard square order,
+ * so square sq is written as sq + 1. Black starts on squares 1 to 12 in PDN as
+ * here, and red is written as White. Red moves first in this program but Black
+ * does in PDN, so every game is written with a FEN tag giving its start
+ * position and the player to move.
+ */
+public class GameRecord {
+
+    static final int POSITION_SIZE = 13;
+    static final int GAME_FLAG = 0x80;
+
+    /**
+     * Result of a game that has not finished.
+     */
+    static final int UNFINISHED = -1;
+
+    private final BitBoard start;
+    private final int startPlayer;
+    private final int[] moves;
+    private final int result;
+
+    /**
+     * @param start       the position the game started from
+     * @param startPlayer the player to move in start, RED or BLACK
+     * @param moves       the moves played, packed (see BitBoard.move)
+     * @param result      the winner, EMPTY for a draw or UNFINISHED
+     */
+    GameRecord(BitBoard start, int startPlayer, int[] moves, int result) {
+        this.start = new BitBoard(start);
+        this.startPlayer = startPlayer;
+        this.moves = moves.clone();
+        this.result = result;
+    }
+
+    /**
+     * Return a copy of the position the game started from.
+     */
+    BitBoard getStart() {
+        return new BitBoard(start);
+    }
+
+    int getStartPlayer() {
+        return startPlayer;
+    }
+
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * Return a move of the game, packed (see BitBoard.move).
+     */
+    int getMove(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Return the winner, CheckersData.EMPTY for a draw or UNFINISHED.
+     */
+    public int getResult() {
+        return result;
+    }
+
+    /**
+     * Return the position after the given number of moves.
+     */
+    BitBoard positionAfter(int count) {
+        BitBoard gameState = getStart();
+        for (int i = 0; i < count; i++)
+            gameState.makeMove(moves[i]);
+        return gameState;
+    }
+
+    static void putPosition(ByteBuffer buffer, BitBoard gameState, int player) {
+        buffer.putInt(gameState.red).putInt(gameState.black).putInt(gameState.kings).put((byte) player);
+    }
+
+    /**
+     * Read the pieces of a position. The player byte that follows them is left
+     * in the buffer.
+     */
+    static BitBoard getPosition(ByteBuffer buffer) {
+        return new BitBoard(buffer.getInt(), buffer.getInt(), buffer.getInt());
+    }
+
+    /**
+     * Return the game in PDN, ending with a blank line.
+     */
+    public String toPdn() {
+        StringBuilder pdn = new StringBuilder();
+        pdn.append("[GameType \"21\"]\n");
+        pdn.append("[FEN \"").append(fen(start, startPlayer)).append("\"]\n");
+        pdn.append("[Result \"").append(resultName(result)).append("\"]\n");
+
+        // Moves are numbered in pairs from the first move of the game, whichever
+        // player made it
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < moves.length; i++) {
+            String token = moveText(moves[i]);
+            if (i % 2 == 0)
+                token = (i / 2 + 1) + ". " + token;
+            appendToken(pdn, line, token);
+        }
+        appendToken(pdn, line, resultName(result));
+        return pdn.append(line).append("\n\n").toString();
+    }
+
+    // PDN lines are kept under 80 characters
+    private static void appendToken(StringBuilder pdn, StringBuilder line, String token) {
+        if (line.length() > 0 && line.length() + 1 + token.length() > 79) {
+            pdn.append(line).append('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0)
+            line.append(' ');
+        line.append(token);
+    }
+
+    /**
+     * Return a packed move in PDN, like "22-18" or "26x17x10".
+     */
+    static String moveText(int move) {
+        StringBuilder text = new StringBuilder().append(BitBoard.moveFrom(move) + 1);
+        int jumps = BitBoard.jumpCount(move);
+        if (jumps == 0)
+            return text.append('-').append(BitBoard.moveTo(move) + 1).toString();
+        for (int i = 1; i <= jumps; i++)
+            text.append('x').append(BitBoard.landing(move, i) + 1);
+        return text.toString();
+    }
+
+    private static String fen(BitBoard gameState, int player) {
+        StringBuilder fen = new StringBuilder(player == CheckersData.RED ? "W" : "B");
+        fen.append(":W");
+        appendSquares(fen, gameState.red, gameState.kings);
+        fen.append(":B");
+        appendSquares(fen, gameState.black, gameState.kings);
+        return fen.toString();
+    }
+
+    private static void appendSquares(StringBuilder fen, int pieces, int kings) {
+        boolean first = true;
+        while (pieces != 0) {
+            int sq = Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            if (!first)
+                fen.append(',');
+            first = false;
+            if ((kings >>> sq & 1) != 0)
+                fen.append('K');
+            fen.append(sq + 1);
+        }
+    }
+
+    private static String resultName(int result) {
+        switch (result) {
+        case CheckersData.RED:
+            return "1-0";
+        case CheckersData.BLACK:
+            return "0-1";
+        case CheckersData.EMPTY:
+            return "1/2-1/2";
+        default:
+            return "*";
+        }
+    }
+
+    /**
+     * Write games in PDN.
+     */
+    public static void writePdn(Writer out, Iterable<GameRecord> games) throws IOException {
+        for (GameRecord game : games)
+            out.write(game.toPdn());
+        out.flush();
+    }
+
+    /**
+     * Read every game of a PDN text. Comments and variations are skipped. A game
+     * without a FEN tag starts from the usual position with black to move, as PDN
+     * has it.
+     *
+     * @throws IOException if the text holds a move that is not legal or not
+     *                     understood
+     */
+    public static List<GameRecord> readPdn(Reader in) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] chars = new char[8192];
+        for (int n; (n = in.read(chars)) != -1;)
+            text.append(chars, 0, n);
+
+        List<GameRecord> games = new ArrayList<>();
+        PdnParser parser = new PdnParser(text);
+        GameRecord game;
+        while ((game = parser.nextGame()) != null)
+            games.add(game);
+        return games;
+    }
+
+    /**
+     * Reads games one at a time from a PDN text.
+     */
+    private static class PdnParser {
+        private final CharSequence text;
+        private int pos;
+
+        PdnParser(CharSequence text) {
+            this.text = text;
+        }
+
+        GameRecord nextGame() throws IOException {
+            BitBoard start = new CheckersData().toBitBoard();
+            int startPlayer = CheckersData.BLACK;
+            BitBoard gameState = null;
+            int player = startPlayer;
+            int[] moves = new int[16];
+            int count = 0;
+            int[] legalMoves = new int[BitBoard.MAX_MOVES];
+
+            String token;
+            while ((token = nextToken()) != null) {
+                if (token.startsWith("[")) {
+                    String name = token.substring(1, token.indexOf(' ') < 0 ? token.length() - 1 : token.indexOf(' '));
+                    int quote = token.indexOf('"');
+                    String value = quote < 0 ? "" : token.substring(quote + 1, token.lastIndexOf('"'));
+                    if (name.equals("FEN") && gameState == null) {
+                        start = new BitBoard();
+                        startPlayer = parseFen(value, start);
+                    }
+                    continue;
+                }
+                int result = parseResult(token);
+                if (result != Integer.MIN_VALUE) {
+                    return new GameRecord(start, startPlayer, Arrays.copyOf(moves, count), result);
+                }
+                // Drop a move number such as "12." or "12..." in front of a move
+                token = token.replaceFirst("^\\d+\\.+", "");
+                if (token.isEmpty())
+                    continue;
+
+                if (gameState == null) {
+                    gameState = new BitBoard(start);
+                    player = startPlayer;
+                }
+                int move = findMove(gameState, player, token, legalMoves);
+                if (count == moves.length)
+                    moves = Arrays.copyOf(moves, 2 * count);
+                moves[count++] = move;
+                gameState.makeMove(move);
+                player = player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED;
+            }
+            if (gameState != null)
+                return new GameRecord(start, startPlayer, Arrays.copyOf(moves, count), UNFINISHED);
+            return null;
+        }
+
+        /**
+         * Return the next tag (with its brackets), move, move number or result,
+         * skipping comments and variations, or null at the end of the text.
+         */
+        private String nextToken() throws IOException {
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (Character.isWhitespace(c)) {
+                    pos++;
+                } else if (c == '{') {
+                    pos = skipTo('}', pos) + 1;
+                } else if (c == '(') {
+                    int depth = 0;
+                    do {
+                        if (text.charAt(pos) == '(')
+                            depth++;
+                        else if (text.charAt(pos) == ')')
+                            depth--;
+                        pos++;
+                    } while (depth > 0 && pos < text.length());
+                } else if (c == '[') {
+                    int end = skipTo(']', pos);
+                    String tag = text.subSequence(pos, end + 1).toString();
+                    pos = end + 1;
+                    return tag;
+                } else {
+                    int start = pos;
+                    while (pos < text.length() && !Character.isWhitespace(text.charAt(pos))
+                            && "{([".indexOf(text.charAt(pos)) < 0)
+                        pos++;
+                    return text.subSequence(start, pos).toString();
+                }
+            }
+            return null;
+        }
+
+        private int skipTo(char c, int from) throws IOException {
+            for (int i = from; i < text.length(); i++) {
+                if (text.charAt(i) == c)
+                    return i;
+            }
+            throw new IOException("Missing '" + c + "' in PDN");
+        }
+    }
+
+    /**
+     * Return the winner named by a PDN result, or Integer.MIN_VALUE if the token
+     * is not a result.
+     */
+    private static int parseResult(String token) {
+        switch (token) {
+        case "1-0":
+        case "2-0":
+            return CheckersData.RED;
+        case "0-1":
+        case "0-2":
+            return CheckersData.BLACK;
+        case "1/2-1/2":
+        case "1-1":
+            return CheckersData.EMPTY;
+        case "*":
+            return UNFINISHED;
+        default:
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Place the pieces of a PDN FEN like "W:W21,22,K30:B1-12" on an empty board.
+     *
+     * @return the player to move
+     */
+    private static int parseFen(String fen, BitBoard gameState) throws IOException {
+        String[] fields = fen.trim().split(":");
+        if (fields.length == 0 || fields[0].isEmpty())
+            throw new IOException("Bad FEN: " + fen);
+        int player = Character.toUpperCase(fields[0].charAt(0)) == 'W' ? CheckersData.RED : CheckersData.BLACK;
+        for (int i = 1; i < fields.length; i++) {
+            String field = fields[i].trim();
+            if (field.isEmpty())
+                continue;
+            boolean red = Character.toUpperCase(field.charAt(0)) == 'W';
+            for (String square : field.substring(1).split(",")) {
+                square = square.trim();
+                if (square.isEmpty())
+                    continue;
+                boolean king = Character.toUpperCase(square.charAt(0)) == 'K';
+                if (king)
+                    square = square.substring(1);
+                String[] range = square.split("-");
+                try {
+                    int first = Integer.parseInt(range[0]);
+                    int last = range.length > 1 ? Integer.parseInt(range[1]) : first;
+                    for (int number = first; number <= last; number++) {
+                        if (number < 1 || number > 32)
+                            throw new IOException("Bad square in FEN: " + fen);
+                        gameState.setPiece(number - 1, red ? (king ? CheckersData.RED_KING : CheckersData.RED)
+                                : (king ? CheckersData.BLACK_KING : CheckersData.BLACK));
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad FEN: " + fen);
+                }
+            }
+        }
+        return player;
+    }
+
+    /**
+     * Find the legal move a PDN move names. A jump may list every square it lands
+     * on, or only its first and last square if that is enough to tell it apart.
+     */
+    private static int findMove(BitBoard gameState, int player, String token, int[] legalMoves) throws IOException {
+        String[] numbers = token.split("[-x:]");
+        int[] squares = new int[numbers.length];
+        try {
+            for (int i = 0; i < numbers.length; i++)
+                squares[i] = Integer.parseInt(numbers[i]) - 1;
+        } catch (NumberFormatException e) {
+            throw new IOException("Not a move: " + token);
+        }
+
+        int count = gameState.generateMoves(player, legalMoves);
+        int found = -1;
+        for (int i = 0; i < count; i++) {
+            int move = legalMoves[i];
+            int hops = Math.max(1, BitBoard.jumpCount(move));
+            if (BitBoard.moveFrom(move) != squares[0] || BitBoard.moveTo(move) != squares[squares.length - 1])
+                continue;
+            boolean matches = squares.length == 2;
+            if (squares.length == hops + 1) {
+                matches = true;
+                for (int j = 1; j < hops; j++)
+                    matches &= BitBoard.landing(move, j) == squares[j];
+            }
+            if (!matches)
+                continue;
+            if (found >= 0)
+                throw new IOException("Ambiguous move: " + token);
+            found = move;
+        }
+        if (found < 0)
+            throw new IOException("Illegal move: " + token);
+        return found;
+    }
+}
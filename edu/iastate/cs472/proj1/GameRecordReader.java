@@ -0,0 +1,139 @@
+package edu.iastate.cs472.proj1;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the positions and games written by GameRecordWriter from a channel, one
+ * record at a time, so a file of any size can be streamed through a small
+ * buffer. Not thread safe.
+ *
+ * <pre>
+ * while (reader.next()) {
+ *     if (reader.isGame())
+ *         ... reader.getGame() ...
+ *     else
+ *         ... reader.getPosition(), reader.getPlayer() ...
+ * }
+ * </pre>
+ */
+public class GameRecordReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private boolean endOfChannel;
+
+    // The record read by the last call to next
+    private BitBoard position;
+    private int player;
+    private GameRecord game;
+
+    public GameRecordReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.flip();
+        if (!fill(4) || buffer.getInt() != GameRecordWriter.MAGIC)
+            throw new IOException("Not a game record file");
+    }
+
+    /**
+     * Open a file of records.
+     */
+    public static GameRecordReader open(Path file) throws IOException {
+        return new GameRecordReader(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return false if there are no more records
+     * @throws EOFException if the last record is cut short
+     */
+    public boolean next() throws IOException {
+        if (!fill(GameRecord.POSITION_SIZE)) {
+            if (buffer.hasRemaining())
+                throw new EOFException("Truncated record");
+            return false;
+        }
+        position = GameRecord.getPosition(buffer);
+        int flags = buffer.get() & 0xFF;
+        player = flags & ~GameRecord.GAME_FLAG;
+        game = null;
+        if ((flags & GameRecord.GAME_FLAG) == 0)
+            return true;
+
+        require(3);
+        int result = buffer.get();
+        int[] moves = new int[buffer.getShort() & 0xFFFF];
+        for (int i = 0; i < moves.length; i++) {
+            require(4);
+            moves[i] = buffer.getInt();
+        }
+        game = new GameRecord(position, player, moves, result);
+        return true;
+    }
+
+    /**
+     * Return true if the current record is a game rather than a single position.
+     */
+    public boolean isGame() {
+        return game != null;
+    }
+
+    /**
+     * Return the position of the current record, the start position if it is a
+     * game.
+     */
+    BitBoard getPosition() {
+        return position;
+    }
+
+    /**
+     * Return the player to move in getPosition.
+     */
+    int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Return the current record if it is a game, otherwise null.
+     */
+    public GameRecord getGame() {
+        return game;
+    }
+
+    private void require(int bytes) throws IOException {
+        if (!fill(bytes))
+            throw new EOFException("Truncated record");
+    }
+
+    /**
+     * Read from the channel until the buffer holds at least the given number of
+     * bytes.
+     *
+     * @return false if the channel ended first
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes)
+            return true;
+        buffer.compact();
+        while (buffer.position() < bytes && !endOfChannel) {
+            if (channel.read(buffer) < 0)
+                endOfChannel = true;
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
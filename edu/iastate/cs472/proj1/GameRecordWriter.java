@@ -0,0 +1,86 @@
+package edu.iastate.cs472.proj1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes positions and games in the binary form described in GameRecord to a
+ * channel, after a header of MAGIC. Records are gathered in a buffer and
+ * written in large blocks, so millions of positions can be written quickly.
+ * Not thread safe.
+ */
+public class GameRecordWriter implements Closeable {
+
+    static final int MAGIC = 0x434B4752; // "CKGR"
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    public GameRecordWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer.putInt(MAGIC);
+    }
+
+    /**
+     * Create or replace a file of records.
+     */
+    public static GameRecordWriter create(Path file) throws IOException {
+        return new GameRecordWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Write a position and the player to move in it.
+     */
+    void writePosition(BitBoard gameState, int player) throws IOException {
+        reserve(GameRecord.POSITION_SIZE);
+        GameRecord.putPosition(buffer, gameState, player);
+    }
+
+    /**
+     * Write a whole game.
+     */
+    public void writeGame(GameRecord game) throws IOException {
+        int count = game.getMoveCount();
+        if (count > 0xFFFF)
+            throw new IllegalArgumentException("Too many moves to record: " + count);
+        reserve(GameRecord.POSITION_SIZE + 3);
+        GameRecord.putPosition(buffer, game.getStart(), game.getStartPlayer() | GameRecord.GAME_FLAG);
+        buffer.put((byte) game.getResult()).putShort((short) count);
+        for (int i = 0; i < count; i++) {
+            reserve(4);
+            buffer.putInt(game.getMove(i));
+        }
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            flush();
+    }
+
+    /**
+     * Write everything buffered so far to the channel.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package edu.iastate.cs472.proj1;
+
+/**
+ * Orders moves by the usual alpha-beta heuristics:
+ *
+ * 1. The hash move, the best move found by an earlier search of the same
+ * position.
+ *
+ * 2. Killer moves, the last two non-jump moves that caused a cutoff at the same
+ * ply somewhere else in the tree. Positions at the same ply are often similar,
+ * so a move that refuted one of them will often refute the others.
+ *
+ * 3. All other moves by their history score, which grows every time the move
+ * (the same start and end square for the same player) causes a cutoff, and
+ * grows faster for cutoffs found deeper in the tree.
+ *
+ * Jumps are not given a separate rank: when a player can jump, every legal move
+ * is a jump. Killers and history can each be switched off to measure how much
+ * they help.
+ */
+public class HeuristicMoveOrderer implements MoveOrderer {
+
+    private static final int MAX_PLY = 128;
+
+    private static final int HASH_MOVE_SCORE = 1 << 30;
+    private static final int KILLER_SCORE = 1 << 28;
+    private static final int MAX_HISTORY = 1 << 26;
+
+    private final boolean useKillers;
+    private final boolean useHistory;
+
+    // killers[ply][0] is the most recent killer at that ply, killers[ply][1] the one
+    // before it.
+    private final int[][] killers = new int[MAX_PLY][2];
+
+    // history[color][from][to], where color is 0 for red and 1 for black
+    private final int[][][] history = new int[2][32][32];
+
+    // Scratch space for the scores of the moves being sorted
+    private final int[] scores = new int[BitBoard.MAX_MOVES];
+
+    /**
+     * Create an orderer that uses every heuristic.
+     */
+    public HeuristicMoveOrderer() {
+        this(true, true);
+    }
+
+    /**
+     * Create an orderer that always puts the hash move first and optionally uses
+     * killer moves and the history heuristic.
+     */
+    public HeuristicMoveOrderer(boolean useKillers, boolean useHistory) {
+        this.useKillers = useKillers;
+        this.useHistory = useHistory;
+    }
+
+    @Override
+    public void newSearch() {
+        for (int[] killer : killers) {
+            killer[0] = TranspositionTable.NO_MOVE;
+            killer[1] = TranspositionTable.NO_MOVE;
+        }
+        // Keep what was learned in earlier moves, but let new cutoffs outweigh it
+        for (int[][] color : history)
+            for (int[] from : color)
+                for (int to = 0; to < 32; to++)
+                    from[to] >>= 1;
+    }
+
+    @Override
+    public void orderMoves(int[] moves, int count, int player, int hashMove, int ply) {
+        int[][] colorHistory = history[player == CheckersData.RED ? 0 : 1];
+        int[] killer = killers[Math.min(ply, MAX_PLY - 1)];
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int score;
+            if (move == hashMove)
+                score = HASH_MOVE_SCORE;
+            else if (useKillers && move == killer[0])
+                score = KILLER_SCORE + 1;
+            else if (useKillers && move == killer[1])
+                score = KILLER_SCORE;
+            else if (useHistory)
+                score = colorHistory[BitBoard.moveFrom(move)][BitBoard.moveTo(move)];
+            else
+                score = 0;
+
+            // Insertion sort by descending score. There are rarely more than a dozen
+            // moves, and equal scores keep their board order.
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                moves[j] = moves[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            moves[j] = move;
+        }
+    }
+
+    @Override
+    public void recordCutoff(int move, int player, int ply, int depth) {
+        if (BitBoard.isJump(move))
+            return;
+
+        if (useKillers) {
+            int[] killer = killers[Math.min(ply, MAX_PLY - 1)];
+            if (killer[0] != move) {
+                killer[1] = killer[0];
+                killer[0] = move;
+            }
+        }
+
+        if (useHistory) {
+            int[] from = history[player == CheckersData.RED ? 0 : 1][BitBoard.moveFrom(move)];
+            int to = BitBoard.moveTo(move);
+            from[to] = Math.min(MAX_HISTORY, from[to] + depth * depth);
+        }
+    }
+
+    @Override
+    public MoveOrderer newInstance() {
+        return new HeuristicMoveOrderer(useKillers, useHistory);
+    }
+}
@@ -0,0 +1,46 @@
+package edu.iastate.cs472.proj1;
+
+/**
+ * Decides the order in which the search tries the moves of a position. Alpha-beta
+ * prunes the most when the best move is tried first, so a good ordering lets
+ * the search reach the same depth while visiting far fewer positions. The search
+ * tells the orderer about every move that caused a cutoff so it can learn which
+ * moves tend to be good.
+ */
+public interface MoveOrderer {
+
+    /**
+     * Called at the start of every move the AI makes.
+     */
+    void newSearch();
+
+    /**
+     * Sort the moves in place, most promising first.
+     *
+     * @param moves    The legal moves of the position, packed (see BitBoard.move)
+     * @param count    The number of moves at the start of the array
+     * @param player   The player to move, RED or BLACK
+     * @param hashMove The best move stored in the transposition table for this
+     *                 position (see TranspositionTable.encodeMove), or
+     *                 TranspositionTable.NO_MOVE
+     * @param ply      Distance of the position from the root of the search
+     */
+    void orderMoves(int[] moves, int count, int player, int hashMove, int ply);
+
+    /**
+     * Called when a move caused an alpha-beta cutoff.
+     *
+     * @param move   The move that caused the cutoff, packed (see BitBoard.move)
+     * @param player The player who made the move, RED or BLACK
+     * @param ply    Distance of the position from the root of the search
+     * @param depth  Remaining search depth below the position
+     */
+    void recordCutoff(int move, int player, int ply, int depth);
+
+    /**
+     * Return a new orderer with the same settings that has learned nothing yet.
+     * Orderers keep state between calls, so every thread searching at once needs
+     * its own.
+     */
+    MoveOrderer newInstance();
+}
@@ -0,0 +1,15 @@
+package edu.iastate.cs472.proj1;
+
+/**
+ * A MoveUndo records everything a BitBoard needs to take back a move: the
+ * squares the moving piece started and ended on, the pieces it captured on the
+ * way and whether it was crowned. A move made of several jumps is recorded in a
+ * single MoveUndo. Records are meant to be allocated once and reused, one for
+ * every level of the search.
+ */
+public class MoveUndo {
+    int from, to; // Square numbers where the moving piece started and stopped.
+    int captured; // Squares of the pieces that were jumped.
+    int capturedKings; // Squares of the jumped pieces that were kings.
+    boolean promoted; // Whether the moving piece became a king.
+}
@@ -0,0 +1,125 @@
+package edu.iastate.cs472.proj1;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Reads an opening book written by OpeningBookBuilder. The book maps positions
+ * near the start of the game to good moves, each with a weight, so the AI can
+ * reply to them at once instead of searching. The file is memory mapped and
+ * searched in place, so any number of games can share one copy.
+ *
+ * The file is a header followed by 16 byte entries sorted by key (big endian):
+ *
+ * <pre>
+ * int  MAGIC
+ * int  number of entries
+ * for every entry: long key, int move, int weight
+ * </pre>
+ *
+ * The key is the Zobrist hash of the position with the player to move (see
+ * Zobrist.hash) and the move is in the TranspositionTable.encodeMove form. A
+ * position with several book moves has one entry per move.
+ */
+public class OpeningBook {
+
+    static final int MAGIC = 0x434B4F42; // "CKOB"
+
+    private static final int HEADER_SIZE = 8;
+    private static final int ENTRY_SIZE = 16;
+
+    private final MappedByteBuffer entries;
+    private final int count;
+    private final Random random = new Random();
+
+    private OpeningBook(MappedByteBuffer entries, int count) {
+        this.entries = entries;
+        this.count = count;
+    }
+
+    /**
+     * Map an opening book file into memory.
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.getInt(0) != MAGIC)
+                throw new IOException("Not an opening book: " + file);
+            return new OpeningBook(buffer, buffer.getInt(4));
+        }
+    }
+
+    /**
+     * Return the number of entries in the book.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Pick one of the book moves of a position at random, in proportion to their
+     * weights.
+     *
+     * @param key Zobrist hash of the position with the player to move
+     * @return the move in TranspositionTable.encodeMove form, or
+     *         TranspositionTable.NO_MOVE if the position is not in the book
+     */
+    public int chooseMove(long key) {
+        int first = firstEntry(key);
+        if (first < 0)
+            return TranspositionTable.NO_MOVE;
+
+        long totalWeight = 0;
+        int last = first;
+        for (; last < count && key(last) == key; last++)
+            totalWeight += weight(last);
+        if (totalWeight <= 0)
+            return move(first);
+
+        long pick = (long) (random.nextDouble() * totalWeight);
+        for (int i = first; i < last; i++) {
+            pick -= weight(i);
+            if (pick < 0)
+                return move(i);
+        }
+        return move(last - 1);
+    }
+
+    /**
+     * Return the index of the first entry with the given key, or -1 if there is
+     * none.
+     */
+    private int firstEntry(long key) {
+        int low = 0, high = count - 1, found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = key(middle);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else {
+                if (middleKey == key)
+                    found = middle;
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    private long key(int entry) {
+        return entries.getLong(HEADER_SIZE + entry * ENTRY_SIZE);
+    }
+
+    private int move(int entry) {
+        return entries.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 8);
+    }
+
+    private int weight(int entry) {
+        return entries.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 12);
+    }
+}
@@ -0,0 +1,189 @@
+package edu.iastate.cs472.proj1;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Builds the opening book read by OpeningBook, either from deep searches or from
+ * logs of finished games. A multi-jump is stored as one move, with all its jumps.
+ *
+ * From searches, every position reachable in the first few turns from the start
+ * of a game is searched to a fixed depth and its best move is added with weight
+ * 1. Every legal move is followed, so the book covers both players and any
+ * reply the opponent might choose.
+ *
+ * From game logs, the moves played in the first few turns of every game are
+ * added, weighted by how the game ended for the player who made them: 2 for a
+ * win, 1 for a draw and nothing for a loss. A log has one game per line, the
+ * result first ("R" if red won, "B" if black won, "D" for a draw) followed by the
+ * moves, like "B c3-d4 f6-e5 d4xf6 ...". A jump that continues is written as one
+ * move, like "c3xe5xg7". Squares are named as in CheckersData.toString. A move
+ * marked with a "?", like "c3-d4?", was not chosen by the player, like the
+ * random opening moves of SelfPlay, so it is played but not added. Lines
+ * starting with "#" are comments, like the ones SelfPlay writes.
+ *
+ * Usage:
+ *
+ * <pre>
+ * java edu.iastate.cs472.proj1.OpeningBookBuilder search [turns] [search depth] [file]
+ * java edu.iastate.cs472.proj1.OpeningBookBuilder games [log] [turns] [file]
+ * </pre>
+ */
+public class OpeningBookBuilder {
+
+    private static final int MAX_PLY = 64;
+
+    // Book moves and their weights by position key
+    private final Map<Long, Map<Integer, Integer>> book = new HashMap<>();
+
+    private final Set<Long> searched = new HashSet<>();
+    private final MoveUndo[] undoStack = new MoveUndo[MAX_PLY];
+    private int undoCount;
+    private final AlphaBetaSearch search = new AlphaBetaSearch();
+
+    public OpeningBookBuilder() {
+        for (int i = 0; i < MAX_PLY; i++)
+            undoStack[i] = new MoveUndo();
+    }
+
+    /**
+     * Add a move to the book.
+     */
+    void add(long key, int move, int weight) {
+        book.computeIfAbsent(key, k -> new HashMap<>()).merge(move, weight, Integer::sum);
+    }
+
+    /**
+     * Search every position reachable from the start of a game in fewer than
+     * turns turns and add its best move.
+     */
+    public void addSearches(int turns, int depth) {
+        search.setSearchDepth(depth);
+        addSearches(new CheckersData().toBitBoard(), CheckersData.RED, turns);
+    }
+
+    private void addSearches(BitBoard gameState, int player, int turns) {
+        if (turns == 0 || !searched.add(Zobrist.hash(gameState, player)))
+            return;
+        CheckersMove[] moves = gameState.getLegalMoves(player);
+        if (moves == null)
+            return;
+
+        CheckersMove best = search.findBestMove(gameState, moves, player);
+        add(Zobrist.hash(gameState, player), TranspositionTable.encodeMove(best), 1);
+        if (searched.size() % 100 == 0)
+            System.out.println(searched.size() + " positions searched");
+
+        for (CheckersMove move : moves) {
+            gameState.makeMove(move, undoStack[undoCount++]);
+            addSearches(gameState, player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED, turns - 1);
+            gameState.unmakeMove(undoStack[--undoCount]);
+        }
+    }
+
+    /**
+     * Add the first turns moves of every game in a log.
+     */
+    public void addGames(Path log, int turns) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(log)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens.length < 2 || tokens[0].startsWith("#"))
+                    continue;
+                int winner = tokens[0].equals("R") ? CheckersData.RED
+                        : tokens[0].equals("B") ? CheckersData.BLACK : CheckersData.EMPTY;
+
+                BitBoard gameState = new CheckersData().toBitBoard();
+                int player = CheckersData.RED;
+                for (int i = 1; i < tokens.length && i <= turns; i++) {
+                    String name = tokens[i];
+                    boolean chosen = !name.endsWith("?");
+                    CheckersMove move = parseMove(chosen ? name : name.substring(0, name.length() - 1));
+                    int weight = winner == CheckersData.EMPTY ? 1 : winner == player ? 2 : 0;
+                    if (chosen && weight > 0)
+                        add(Zobrist.hash(gameState, player), TranspositionTable.encodeMove(move), weight);
+
+                    gameState.makeMove(move);
+                    player = player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED;
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a move written like "c3-d4" or "c3xe5xg7", with every jump linked
+     * through next.
+     */
+    private static CheckersMove parseMove(String name) {
+        String[] squares = name.split("[-x]");
+        CheckersMove first = null, last = null;
+        for (int j = 1; j < squares.length; j++) {
+            CheckersMove move = new CheckersMove(row(squares[j - 1]), col(squares[j - 1]), row(squares[j]),
+                    col(squares[j]));
+            if (last == null)
+                first = move;
+            else
+                last.next = move;
+            last = move;
+        }
+        return first;
+    }
+
+    private static int row(String square) {
+        return 8 - (square.charAt(1) - '0');
+    }
+
+    private static int col(String square) {
+        return square.charAt(0) - 'a';
+    }
+
+    /**
+     * Write the book, sorted by key, in the format read by OpeningBook.
+     */
+    public void write(Path file) throws IOException {
+        TreeMap<Long, Map<Integer, Integer>> sorted = new TreeMap<>(book);
+        int count = 0;
+        for (Map<Integer, Integer> moves : sorted.values())
+            count += moves.size();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(count);
+            for (Map.Entry<Long, Map<Integer, Integer>> entry : sorted.entrySet()) {
+                for (Map.Entry<Integer, Integer> move : entry.getValue().entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeInt(move.getKey());
+                    out.writeInt(move.getValue());
+                }
+            }
+        }
+        System.out.println("Wrote " + count + " entries to " + file);
+    }
+
+    public static void main(String[] args) throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        Path file;
+        if (args.length > 0 && args[0].equals("games")) {
+            int turns = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+            file = Paths.get(args.length > 3 ? args[3] : "opening.book");
+            builder.addGames(Paths.get(args.length > 1 ? args[1] : "selfplay.log"), turns);
+        } else {
+            int turns = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+            int depth = args.length > 2 ? Integer.parseInt(args[2]) : 14;
+            file = Paths.get(args.length > 3 ? args[3] : "opening.book");
+            builder.addSearches(turns, depth);
+        }
+        builder.write(file);
+    }
+}
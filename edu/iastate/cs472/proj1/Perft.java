@@ -0,0 +1,202 @@
+package edu.iastate.cs472.proj1;
+
+import java.util.Arrays;
+
+/**
+ * Perft ("performance test") counts the positions reachable from a starting
+ * position in exactly N turns. A turn is a whole move, so a double jump counts
+ * once no matter how many jumps it takes, and every different way of continuing
+ * a jump counts separately. The counts only depend on the rules, so they check
+ * the move generation against known values whenever the board representation
+ * changes, and timing them without the hash table measures raw move generation
+ * speed apart from the search. From the start of a game the counts for depths
+ * 1 to 10 are 7, 49, 302, 1469, 7361, 36768, 179740, 845931, 3963680 and
+ * 18391564.
+ *
+ * Usage: java edu.iastate.cs472.proj1.Perft depth [divide] [nohash]
+ *
+ * "divide" prints the count below every move of the starting position, which
+ * narrows a wrong total down to the move that causes it. "nohash" turns off the
+ * table that reuses the counts of positions reached more than once, and only
+ * then is the speed in nodes per second printed: with the table most positions
+ * are counted without generating their moves.
+ */
+public class Perft {
+
+    private static final int MAX_PLY = 128;
+
+    // One undo record for every move on the current path
+    private final MoveUndo[] undoStack = new MoveUndo[MAX_PLY];
+    private int undoCount;
+
+    // Packed moves generated at each level of the path, indexed by undoCount like
+    // in AlphaBetaSearch
+    private final int[][] moveBuffers = new int[MAX_PLY + 1][BitBoard.MAX_MOVES];
+
+    // Counts of positions already visited, keyed by position, player to move and
+    // depth. The keys are stored XORed with the counts like in TranspositionTable.
+    private final long[] hashKeys;
+    private final long[] hashCounts;
+    private final int hashMask;
+
+    /**
+     * Create a perft counter without a hash table.
+     */
+    public Perft() {
+        this(0);
+    }
+
+    /**
+     * Create a perft counter.
+     *
+     * @param hashSize number of hash table entries, a power of two, or 0 for no
+     *                 hash table
+     */
+    public Perft(int hashSize) {
+        if (hashSize < 0 || (hashSize > 0 && Integer.bitCount(hashSize) != 1))
+            throw new IllegalArgumentException("Hash size must be a power of two: " + hashSize);
+        for (int i = 0; i < MAX_PLY; i++)
+            undoStack[i] = new MoveUndo();
+        hashKeys = new long[hashSize];
+        hashCounts = new long[hashSize];
+        hashMask = hashSize - 1;
+    }
+
+    /**
+     * Forget every count in the hash table.
+     */
+    public void clearHash() {
+        Arrays.fill(hashKeys, 0);
+        Arrays.fill(hashCounts, 0);
+    }
+
+    /**
+     * Count the positions reachable from gameState in exactly depth turns.
+     *
+     * @param gameState The starting position. It is left unchanged.
+     * @param player    The player to move, RED or BLACK
+     * @param depth     Number of turns
+     */
+    public long perft(BitBoard gameState, int player, int depth) {
+        if (depth == 0)
+            return 1;
+
+        long key = 0;
+        if (hashKeys.length > 0 && depth > 1) {
+            key = Zobrist.hash(gameState, player) ^ (depth * 0x9E3779B97F4A7C15L);
+            int index = (int) key & hashMask;
+            if ((hashKeys[index] ^ hashCounts[index]) == key && hashCounts[index] != 0)
+                return hashCounts[index];
+        }
+
+        int[] moves = moveBuffers[undoCount];
+        int moveCount = gameState.generateMoves(player, moves);
+        if (moveCount == 0)
+            return 0;
+
+        long count;
+        if (depth == 1) {
+            // Bulk counting: every move is exactly one turn
+            count = moveCount;
+        } else {
+            count = 0;
+            for (int i = 0; i < moveCount; i++)
+                count += perftMove(gameState, player, moves[i], depth);
+        }
+
+        if (key != 0) {
+            int index = (int) key & hashMask;
+            hashKeys[index] = key ^ count;
+            hashCounts[index] = count;
+        }
+        return count;
+    }
+
+    /**
+     * Make the move and count the positions below it.
+     */
+    private long perftMove(BitBoard gameState, int player, int move, int depth) {
+        gameState.makeMove(move, undoStack[undoCount++]);
+        long count = perft(gameState, opponent(player), depth - 1);
+        gameState.unmakeMove(undoStack[--undoCount]);
+        return count;
+    }
+
+    /**
+     * Print the count below every turn of the starting position, and the total.
+     *
+     * @return the total count
+     */
+    public long divide(BitBoard gameState, int player, int depth) {
+        long total = 0;
+        CheckersMove[] moves = gameState.getLegalMoves(player);
+        if (moves != null && depth > 0) {
+            for (CheckersMove move : moves) {
+                long count = perftMove(gameState, player, BitBoard.move(move), depth);
+                System.out.println(moveName(move) + ": " + count);
+                total += count;
+            }
+        }
+        System.out.println("Total: " + total);
+        return total;
+    }
+
+    private static int opponent(int player) {
+        return player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED;
+    }
+
+    /**
+     * Return the name of a square in the same notation as CheckersData.toString,
+     * for example "a3".
+     */
+    static String squareName(int row, int col) {
+        return "" + (char) ('a' + col) + (8 - row);
+    }
+
+    /**
+     * Return the name of a move, for example "c3-d4", or "c3xe5xg7" for a jump
+     * that jumps again.
+     */
+    static String moveName(CheckersMove move) {
+        StringBuilder name = new StringBuilder(squareName(move.fromRow, move.fromCol));
+        for (; move != null; move = move.next)
+            name.append(move.isJump() ? 'x' : '-').append(squareName(move.toRow, move.toCol));
+        return name.toString();
+    }
+
+    /**
+     * Run perft from the start of a game, where red moves first, and print the
+     * count for every depth up to the given one together with the time taken.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        boolean divide = false;
+        boolean hash = true;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("divide"))
+                divide = true;
+            else if (args[i].equals("nohash"))
+                hash = false;
+        }
+
+        BitBoard gameState = new CheckersData().toBitBoard();
+        Perft perft = new Perft(hash ? 1 << 20 : 0);
+        if (divide) {
+            perft.divide(gameState, CheckersData.RED, depth);
+            return;
+        }
+        for (int d = 1; d <= depth; d++) {
+            // Each depth starts with an empty table, so it doesn't reuse the counts of
+            // the depths before it
+            perft.clearHash();
+            long startTime = System.nanoTime();
+            long count = perft.perft(gameState, CheckersData.RED, d);
+            long nanos = System.nanoTime() - startTime;
+            if (hash)
+                System.out.printf("perft(%d) = %d  %.1f ms%n", d, count, nanos / 1e6);
+            else
+                System.out.printf("perft(%d) = %d  %.1f ms  %.0f nodes/s%n", d, count, nanos / 1e6,
+                        count * 1e9 / nanos);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package edu.iastate.cs472.proj1;
+
+import java.util.Arrays;
+
+/**
+ * The positions of a game so far, as a stack of Zobrist hashes of their pieces
+ * (BitBoard.hash), one pushed after every move. The game controller keeps one
+ * for the real game, and AlphaBetaSearch copies it at the start of a search and
+ * goes on pushing and popping the positions of its search path, so the search
+ * sees repetitions of positions from earlier in the game as well as of its own.
+ *
+ * Only a king step can be taken back: a man never moves backwards and a jumped
+ * piece never returns. So a position can only repeat one reached since the last
+ * man move or jump, and the stack counts those reversible moves for every
+ * position. The players alternate, so a position with the same player to move
+ * is an even number of moves back.
+ *
+ * The count also gives the no-progress rule: a game in which neither player has
+ * moved a man or jumped for noProgressMoves moves each is a draw.
+ */
+public class PositionHistory {
+
+    /**
+     * The no-progress limit of tournament checkers, 40 moves by each player.
+     */
+    public static final int NO_PROGRESS_MOVES = 40;
+
+    private long[] hashes = new long[256];
+    private int[] reversibleMoves = new int[256];
+    private int size;
+    private int noProgressMoves;
+
+    /**
+     * @param noProgressMoves the number of moves each player may make without
+     *                        moving a man or jumping before the game is drawn, or 0
+     *                        for no limit
+     */
+    public PositionHistory(int noProgressMoves) {
+        this.noProgressMoves = noProgressMoves;
+    }
+
+    /**
+     * Create a copy of another history.
+     */
+    public PositionHistory(PositionHistory other) {
+        copyFrom(other);
+    }
+
+    /**
+     * Replace this history with a copy of another.
+     */
+    void copyFrom(PositionHistory other) {
+        noProgressMoves = other.noProgressMoves;
+        if (hashes.length < other.size) {
+            hashes = new long[other.hashes.length];
+            reversibleMoves = new int[other.hashes.length];
+        }
+        System.arraycopy(other.hashes, 0, hashes, 0, other.size);
+        System.arraycopy(other.reversibleMoves, 0, reversibleMoves, 0, other.size);
+        size = other.size;
+    }
+
+    /**
+     * Remove every position.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Start the history again from the given position, as if nothing came before
+     * it.
+     */
+    public void reset(BitBoard gameState) {
+        size = 0;
+        push(gameState.hash, false);
+    }
+
+    /**
+     * Add the position reached by a move.
+     *
+     * @param hash       BitBoard.hash of the position
+     * @param reversible true if the move was a king step, see isReversible
+     */
+    void push(long hash, boolean reversible) {
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, 2 * size);
+            reversibleMoves = Arrays.copyOf(reversibleMoves, 2 * size);
+        }
+        hashes[size] = hash;
+        reversibleMoves[size] = reversible && size > 0 ? reversibleMoves[size - 1] + 1 : 0;
+        size++;
+    }
+
+    /**
+     * Add the position after a move, which must already be made on gameState.
+     */
+    public void push(BitBoard gameState, boolean reversible) {
+        push(gameState.hash, reversible);
+    }
+
+    /**
+     * Remove the last position.
+     */
+    void pop() {
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the hash of the last position.
+     */
+    long top() {
+        return hashes[size - 1];
+    }
+
+    /**
+     * Return true if a move in the given position could be taken back later, that
+     * is if it is a king step. Call it before the move is made.
+     *
+     * @param move a packed move (see BitBoard.move)
+     */
+    static boolean isReversible(BitBoard gameState, int move) {
+        return !BitBoard.isJump(move) && (gameState.kings >>> BitBoard.moveFrom(move) & 1) != 0;
+    }
+
+    /**
+     * Like isReversible(BitBoard, int), for a CheckersMove.
+     */
+    public static boolean isReversible(BitBoard gameState, CheckersMove move) {
+        int piece = gameState.pieceAt(move.fromRow, move.fromCol);
+        return !move.isJump() && (piece == CheckersData.RED_KING || piece == CheckersData.BLACK_KING);
+    }
+
+    /**
+     * Return the number of moves in a row, up to the last position, that moved a
+     * king without jumping.
+     */
+    public int getReversibleMoves() {
+        return size == 0 ? 0 : reversibleMoves[size - 1];
+    }
+
+    /**
+     * Return true if the last position has been reached before with the same
+     * player to move.
+     */
+    public boolean isRepetition() {
+        int last = size - 1;
+        long hash = hashes[last];
+        int first = Math.max(0, last - reversibleMoves[last]);
+        for (int i = last - 2; i >= first; i -= 2) {
+            if (hashes[i] == hash)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return true if the no-progress rule makes the game a draw in the last
+     * position.
+     */
+    public boolean isNoProgressDraw() {
+        return noProgressMoves > 0 && getReversibleMoves() >= 2 * noProgressMoves;
+    }
+
+    /**
+     * Return true if the last position is a draw, either because it repeats an
+     * earlier one or by the no-progress rule. The search scores such positions as
+     * draws.
+     */
+    boolean isDraw() {
+        return size > 0 && (isNoProgressDraw() || isRepetition());
+    }
+}
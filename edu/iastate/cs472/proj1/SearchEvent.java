@@ -0,0 +1,57 @@
+package edu.iastate.cs472.proj1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one move found by an AlphaBetaSearch, so searches
+ * can be watched in a running program with JDK Mission Control or "jfr print"
+ * without printing anything. The event lasts as long as the search. Nothing is
+ * recorded unless a recording is running with the event enabled, for example:
+ *
+ * <pre>
+ * java -XX:StartFlightRecording=filename=search.jfr edu.iastate.cs472.proj1.Checkers
+ * </pre>
+ */
+@Name("edu.iastate.cs472.proj1.Search")
+@Label("Checkers Search")
+@Category("Checkers")
+@Description("Search for one move")
+class SearchEvent extends Event {
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Quiescence Nodes")
+    long quiescenceNodes;
+
+    @Label("Table Probes")
+    long tableProbes;
+
+    @Label("Table Hits")
+    long tableHits;
+
+    @Label("Table Cutoffs")
+    long tableCutoffs;
+
+    @Label("First Move Cutoffs")
+    @Description("Cutoffs made by the first move searched")
+    long firstMoveCutoffs;
+
+    @Label("Cutoffs")
+    long cutoffs;
+
+    @Label("Nodes per Second")
+    @Frequency
+    long nodesPerSecond;
+
+    @Label("Principal Variation")
+    String principalVariation;
+}
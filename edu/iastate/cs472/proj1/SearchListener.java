@@ -0,0 +1,29 @@
+package edu.iastate.cs472.proj1;
+
+/**
+ * Receives progress reports from a running AlphaBetaSearch, for example to show
+ * what the AI is thinking while it searches or to collect metrics on every
+ * move. Reports are made on the thread running the search, so a listener that
+ * updates Swing components must hand the update over to the event dispatch
+ * thread.
+ */
+public interface SearchListener {
+
+    /**
+     * Called every time the search finishes one depth of iterative deepening.
+     *
+     * @param depth    The depth just completed
+     * @param nodes    Positions visited so far for this move, by every thread
+     * @param bestMove The best move found at this depth
+     */
+    void iterationFinished(int depth, long nodes, CheckersMove bestMove);
+
+    /**
+     * Called when the search has chosen its move, with what it took to find it.
+     * Does nothing unless overridden.
+     *
+     * @param stats The statistics of the finished search
+     */
+    default void searchFinished(SearchStats stats) {
+    }
+}
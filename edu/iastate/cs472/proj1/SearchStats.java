@@ -0,0 +1,126 @@
+package edu.iastate.cs472.proj1;
+
+/**
+ * What an AlphaBetaSearch did to find one move: how many positions it visited,
+ * how well the transposition table and the move ordering worked, how deep it got
+ * and the line of play it expects. Counts include the positions visited by
+ * helper threads.
+ */
+public class SearchStats {
+
+    /**
+     * Number of buckets in the cutoff distribution. The last bucket counts every
+     * cutoff at this index or later.
+     */
+    public static final int CUTOFF_BUCKETS = 8;
+
+    private final long nodes;
+    private final long quiescenceNodes;
+    private final long tableProbes;
+    private final long tableHits;
+    private final long tableCutoffs;
+    private final long[] cutoffs;
+    private final int depth;
+    private final long elapsedMillis;
+    private final String principalVariation;
+
+    SearchStats(long nodes, long quiescenceNodes, long tableProbes, long tableHits, long tableCutoffs,
+            long[] cutoffs, int depth, long elapsedMillis, String principalVariation) {
+        this.nodes = nodes;
+        this.quiescenceNodes = quiescenceNodes;
+        this.tableProbes = tableProbes;
+        this.tableHits = tableHits;
+        this.tableCutoffs = tableCutoffs;
+        this.cutoffs = cutoffs.clone();
+        this.depth = depth;
+        this.elapsedMillis = elapsedMillis;
+        this.principalVariation = principalVariation;
+    }
+
+    /**
+     * Return the number of positions visited, including those of the quiescence
+     * search.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Return the number of positions visited by the quiescence search.
+     */
+    public long getQuiescenceNodes() {
+        return quiescenceNodes;
+    }
+
+    /**
+     * Return the number of times the transposition table was looked up.
+     */
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    /**
+     * Return the number of lookups that found the position.
+     */
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    /**
+     * Return the number of lookups whose stored score was good enough to return
+     * without searching.
+     */
+    public long getTableCutoffs() {
+        return tableCutoffs;
+    }
+
+    /**
+     * Return the number of cutoffs made by the move at the given index of the
+     * ordered moves. With good move ordering almost all are made by the first.
+     *
+     * @param index 0 for the first move, up to CUTOFF_BUCKETS - 1 for that move and
+     *              every later one
+     */
+    public long getCutoffs(int index) {
+        return cutoffs[index];
+    }
+
+    /**
+     * Return the depth of the last iteration that finished, or 0 if the move came
+     * from the opening book or was forced.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Return the number of positions visited per second.
+     */
+    public long getNodesPerSecond() {
+        return nodes * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    /**
+     * Return the line of play the search expects, starting with the chosen move,
+     * like "c3-d4 f6-e5 d4xf6". It is read back from the transposition table, so
+     * it may stop early where an entry was replaced.
+     */
+    public String getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    @Override
+    public String toString() {
+        long total = 0;
+        for (long count : cutoffs)
+            total += count;
+        return String.format("depth %d, %d nodes (%d quiescence), %d ms, %d nodes/s, table %d hits %d cutoffs "
+                + "of %d probes, %.1f%% of cutoffs on the first move, pv %s", depth, nodes, quiescenceNodes,
+                elapsedMillis, getNodesPerSecond(), tableHits, tableCutoffs, tableProbes,
+                total == 0 ? 0.0 : 100.0 * cutoffs[0] / total, principalVariation);
+    }
+}
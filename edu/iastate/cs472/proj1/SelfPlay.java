@@ -0,0 +1,372 @@
+package edu.iastate.cs472.proj1;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Plays the AI against itself without the window, to compare two search
+ * settings over many games. Player A and player B each get their own search
+ * depth and time budget. They swap colors every game, and every game starts with
+ * a few random moves so the games differ. The games run in parallel, one per
+ * worker thread, and each worker keeps its own pair of searches.
+ *
+ * Every finished game is written to the log as two lines: a comment with the
+ * players, the result, and the time and nodes each player used per move, then
+ * the game itself in the format read by OpeningBookBuilder, like
+ * "B c3-d4? f6-e5? ...", where the random moves are marked with a "?" so the
+ * book leaves them out. A game that reaches MAX_TURNS turns is a draw, and so
+ * is one in which neither player moves a man or jumps for
+ * PositionHistory.NO_PROGRESS_MOVES moves each. The games can also be written
+ * in binary to a GameRecordWriter, which takes far less room. Given a
+ * tablebase file, both players use that endgame tablebase.
+ *
+ * Any other search setting is given as an argument of the form name=value for
+ * both players, or A.name=value or B.name=value for one of them, anywhere among
+ * the other arguments. The names are those listed in Player.setting, so for
+ * example "B.pvs=false" compares the search with and without principal variation
+ * search, and "A.threads=4" gives A four threads.
+ *
+ * Usage:
+ *
+ * <pre>
+ * java edu.iastate.cs472.proj1.SelfPlay [games] [workers] [depth A] [depth B] [ms per move A] [ms per move B]
+ *         [random turns] [log] [records] [tablebase] [[A.|B.]name=value ...]
+ * </pre>
+ */
+public class SelfPlay {
+
+    static final int MAX_TURNS = 200;
+
+    /**
+     * The settings of one player. Besides the depth and time budget, a player can
+     * change any other setting of its searches through a configurator, which is
+     * applied to every search the player gets.
+     */
+    static class Player {
+        final String name;
+        final int searchDepth;
+        final long timeBudgetMillis;
+        private final Consumer<AlphaBetaSearch> configurator;
+        private final String settings; // Described for toString, like ", pvs=false"
+
+        Player(String name, int searchDepth, long timeBudgetMillis) {
+            this(name, searchDepth, timeBudgetMillis, search -> {
+            }, "");
+        }
+
+        private Player(String name, int searchDepth, long timeBudgetMillis, Consumer<AlphaBetaSearch> configurator,
+                String settings) {
+            this.name = name;
+            this.searchDepth = searchDepth;
+            this.timeBudgetMillis = timeBudgetMillis;
+            this.configurator = configurator;
+            this.settings = settings;
+        }
+
+        /**
+         * Return a copy of this player whose searches are also changed by the given
+         * configurator, after any configurators added before it.
+         *
+         * @param description how the setting is shown in the results
+         */
+        Player configure(String description, Consumer<AlphaBetaSearch> configurator) {
+            return new Player(name, searchDepth, timeBudgetMillis, this.configurator.andThen(configurator),
+                    settings + ", " + description);
+        }
+
+        /**
+         * Return a copy of this player with a setting given as name=value applied.
+         */
+        Player configure(String setting) {
+            int split = setting.indexOf('=');
+            if (split < 0)
+                throw new IllegalArgumentException("Expected name=value: " + setting);
+            return configure(setting, setting(setting.substring(0, split), setting.substring(split + 1)));
+        }
+
+        /**
+         * Return a configurator for one search setting. The names are quiescence,
+         * quiescenceNodes, pvs, aspiration, lmr, lmrIndex, lmrDepth, lmrReduction,
+         * futility, futilityDepth, futilityMargin, threads and ordering, whose value
+         * is one of all, killers, history or hash.
+         */
+        static Consumer<AlphaBetaSearch> setting(String name, String value) {
+            switch (name) {
+            case "quiescence":
+                return withBoolean(value, AlphaBetaSearch::setQuiescence);
+            case "quiescenceNodes":
+                return withInt(value, AlphaBetaSearch::setQuiescenceNodeLimit);
+            case "pvs":
+                return withBoolean(value, AlphaBetaSearch::setPrincipalVariationSearch);
+            case "aspiration":
+                return withInt(value, AlphaBetaSearch::setAspirationWindow);
+            case "lmr":
+                return withBoolean(value, AlphaBetaSearch::setLateMoveReductions);
+            case "lmrIndex":
+                return withInt(value, AlphaBetaSearch::setLateMoveIndex);
+            case "lmrDepth":
+                return withInt(value, AlphaBetaSearch::setLateMoveMinDepth);
+            case "lmrReduction":
+                return withInt(value, AlphaBetaSearch::setLateMoveReduction);
+            case "futility":
+                return withBoolean(value, AlphaBetaSearch::setFutilityPruning);
+            case "futilityDepth":
+                return withInt(value, AlphaBetaSearch::setFutilityDepth);
+            case "futilityMargin":
+                return withInt(value, AlphaBetaSearch::setFutilityMargin);
+            case "threads":
+                return withInt(value, AlphaBetaSearch::setThreads);
+            case "ordering":
+                boolean killers = value.equals("all") || value.equals("killers");
+                boolean history = value.equals("all") || value.equals("history");
+                if (!killers && !history && !value.equals("hash"))
+                    throw new IllegalArgumentException("Unknown move ordering: " + value);
+                return search -> search.setMoveOrderer(new HeuristicMoveOrderer(killers, history));
+            default:
+                throw new IllegalArgumentException("Unknown setting: " + name);
+            }
+        }
+
+        private static Consumer<AlphaBetaSearch> withInt(String value, ObjIntConsumer<AlphaBetaSearch> setter) {
+            int parsed = Integer.parseInt(value);
+            return search -> setter.accept(search, parsed);
+        }
+
+        private static Consumer<AlphaBetaSearch> withBoolean(String value, BiConsumer<AlphaBetaSearch, Boolean> setter) {
+            if (!value.equals("true") && !value.equals("false"))
+                throw new IllegalArgumentException("Expected true or false: " + value);
+            boolean parsed = value.equals("true");
+            return search -> setter.accept(search, parsed);
+        }
+
+        AlphaBetaSearch createSearch(TranspositionTable transpositionTable, EndgameTablebase tablebase) {
+            AlphaBetaSearch search = new AlphaBetaSearch(transpositionTable);
+            search.setTablebase(tablebase);
+            search.setSearchDepth(searchDepth);
+            search.setTimeBudget(timeBudgetMillis);
+            configurator.accept(search);
+            return search;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (depth " + searchDepth + (timeBudgetMillis > 0 ? ", " + timeBudgetMillis + " ms" : "")
+                    + settings + ")";
+        }
+    }
+
+    private final Player a;
+    private final Player b;
+    private final int randomTurns;
+    private final Writer log;
+    private GameRecordWriter records; // Also receives every game, or null
+    private EndgameTablebase tablebase; // Used by both players, or null
+
+    // Each worker thread plays with its own searches and transposition tables
+    private final ThreadLocal<TranspositionTable[]> tables = ThreadLocal.withInitial(SelfPlay::newTables);
+    private final ThreadLocal<AlphaBetaSearch[]> searches;
+
+    // Results so far, from A's point of view
+    private int wins, losses, draws;
+
+    public SelfPlay(Player a, Player b, int randomTurns, Writer log) {
+        this.a = a;
+        this.b = b;
+        this.randomTurns = randomTurns;
+        this.log = log;
+        this.searches = ThreadLocal.withInitial(() -> new AlphaBetaSearch[] {
+                a.createSearch(tables.get()[0], tablebase), b.createSearch(tables.get()[1], tablebase) });
+    }
+
+    private static TranspositionTable[] newTables() {
+        return new TranspositionTable[] { new TranspositionTable(1 << 20), new TranspositionTable(1 << 20) };
+    }
+
+    /**
+     * Let both players use the given endgame tablebase, or none if it is null.
+     * Must be called before play.
+     */
+    public void setTablebase(EndgameTablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Also write every finished game to the given writer, or stop if it is null.
+     */
+    public void setRecords(GameRecordWriter records) {
+        this.records = records;
+    }
+
+    /**
+     * Play a number of games on a pool of worker threads and print the score.
+     */
+    public void play(int games, int workers) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<?>> results = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            int number = game;
+            results.add(pool.submit(() -> playGame(number)));
+        }
+        try {
+            for (Future<?> result : results)
+                result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.printf("%s against %s: %d wins, %d losses, %d draws, score %.1f%%%n", a, b, wins, losses, draws,
+                100.0 * (wins + draws / 2.0) / games);
+    }
+
+    /**
+     * Play one game. A plays black in even numbered games and red in odd ones.
+     * The random opening moves are seeded by the game number, so a game can be
+     * replayed.
+     */
+    void playGame(int number) {
+        AlphaBetaSearch[] players = searches.get();
+        boolean aIsBlack = number % 2 == 0;
+        Random random = new Random(number);
+        // Games are independent, so nothing learned in the last one is kept
+        for (TranspositionTable table : tables.get())
+            table.clear();
+
+        BitBoard gameState = new CheckersData().toBitBoard();
+        PositionHistory history = new PositionHistory(PositionHistory.NO_PROGRESS_MOVES);
+        history.reset(gameState);
+        int player = CheckersData.RED;
+        int winner = CheckersData.EMPTY;
+        StringBuilder moves = new StringBuilder();
+        int[] played = new int[MAX_TURNS];
+        long[] time = new long[2];
+        long[] nodes = new long[2];
+        int[] searched = new int[2];
+
+        int turn;
+        for (turn = 0; turn < MAX_TURNS; turn++) {
+            if (history.isNoProgressDraw())
+                break;
+            CheckersMove[] legalMoves = gameState.getLegalMoves(player);
+            if (legalMoves == null) {
+                winner = player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED;
+                break;
+            }
+            int index = (player == CheckersData.BLACK) == aIsBlack ? 0 : 1;
+            AlphaBetaSearch search = players[index];
+
+            CheckersMove move;
+            if (turn < randomTurns) {
+                move = legalMoves[random.nextInt(legalMoves.length)];
+            } else {
+                long startTime = System.nanoTime();
+                move = search.findBestMove(gameState, legalMoves, player, history);
+                time[index] += System.nanoTime() - startTime;
+                nodes[index] += search.getNodeCount();
+                searched[index]++;
+            }
+            moves.append(' ').append(Perft.moveName(move));
+            if (turn < randomTurns)
+                moves.append('?');
+            played[turn] = BitBoard.move(move);
+            boolean reversible = PositionHistory.isReversible(gameState, move);
+            gameState.makeMove(move);
+            history.push(gameState, reversible);
+            player = player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED;
+        }
+
+        int aColor = aIsBlack ? CheckersData.BLACK : CheckersData.RED;
+        String result = winner == CheckersData.EMPTY ? "draw" : winner == aColor ? "A" : "B";
+        String line = String.format("# game %d, A %s, result %s, %d turns, A %d ms %d nodes per move, "
+                + "B %d ms %d nodes per move%n%s%s%n", number, aIsBlack ? "black" : "red", result, turn,
+                perMove(time[0], searched[0]) / 1_000_000, perMove(nodes[0], searched[0]),
+                perMove(time[1], searched[1]) / 1_000_000, perMove(nodes[1], searched[1]),
+                winner == CheckersData.RED ? "R" : winner == CheckersData.BLACK ? "B" : "D", moves);
+        GameRecord game = new GameRecord(new CheckersData().toBitBoard(), CheckersData.RED,
+                Arrays.copyOf(played, turn), winner);
+        record(line, game, winner == CheckersData.EMPTY ? 0 : winner == aColor ? 1 : -1);
+    }
+
+    private static long perMove(long total, int moves) {
+        return moves == 0 ? 0 : total / moves;
+    }
+
+    /**
+     * Add a finished game to the log, the records and the score.
+     *
+     * @param outcome 1 if A won, -1 if B won, 0 for a draw
+     */
+    private synchronized void record(String line, GameRecord game, int outcome) {
+        if (outcome > 0)
+            wins++;
+        else if (outcome < 0)
+            losses++;
+        else
+            draws++;
+        try {
+            log.write(line);
+            log.flush();
+            if (records != null)
+                records.writeGame(game);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int games = wins + losses + draws;
+        if (games % 10 == 0)
+            System.out.println(games + " games: " + wins + " wins, " + losses + " losses, " + draws + " draws");
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // Search settings may come anywhere, the other arguments keep their order
+        List<String> settings = new ArrayList<>();
+        List<String> positional = new ArrayList<>();
+        for (String arg : args)
+            (arg.contains("=") ? settings : positional).add(arg);
+        args = positional.toArray(new String[0]);
+
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int depthA = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int depthB = args.length > 3 ? Integer.parseInt(args[3]) : depthA;
+        long timeA = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        long timeB = args.length > 5 ? Long.parseLong(args[5]) : timeA;
+        int randomTurns = args.length > 6 ? Integer.parseInt(args[6]) : 4;
+        Path file = Paths.get(args.length > 7 ? args[7] : "selfplay.log");
+        Path recordFile = args.length > 8 ? Paths.get(args[8]) : null;
+        Path tablebaseFile = args.length > 9 ? Paths.get(args[9]) : null;
+
+        Player a = new Player("A", depthA, timeA);
+        Player b = new Player("B", depthB, timeB);
+        for (String setting : settings) {
+            if (!setting.startsWith("B."))
+                a = a.configure(setting.startsWith("A.") ? setting.substring(2) : setting);
+            if (!setting.startsWith("A."))
+                b = b.configure(setting.startsWith("B.") ? setting.substring(2) : setting);
+        }
+
+        try (BufferedWriter log = Files.newBufferedWriter(file);
+                GameRecordWriter records = recordFile != null ? GameRecordWriter.create(recordFile) : null) {
+            SelfPlay selfPlay = new SelfPlay(a, b, randomTurns, log);
+            selfPlay.setRecords(records);
+            if (tablebaseFile != null)
+                selfPlay.setTablebase(EndgameTablebase.open(tablebaseFile));
+            selfPlay.play(games, workers);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package edu.iastate.cs472.proj1;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the endgame tablebase read by EndgameTablebase, for every position with
+ * up to a given number of pieces. This is done offline, once.
+ *
+ * The tables are solved by retrograde analysis, smallest material first, so
+ * every capture or promotion leads into a table that is already finished. Within
+ * one table the solver makes one pass per distance, and pass n finds exactly the
+ * positions that end the game in n plies. A player with no legal moves has lost
+ * in 0. A position is won in n if one of its moves leads to a position the
+ * opponent loses in n - 1, and lost in n if every one of its moves leads to a
+ * position the opponent wins in at most n - 1, one of them in exactly n - 1.
+ * Results from finished tables are only used in the pass their distance calls
+ * for, so a quick win through a capture is never hidden behind a slower one found
+ * first. Once a pass finds nothing new and no result of a finished table is still
+ * waiting for its pass, the positions still unsolved are draws.
+ *
+ * Usage: java edu.iastate.cs472.proj1.TablebaseGenerator [max pieces] [file]
+ */
+public class TablebaseGenerator {
+
+    private final Map<Integer, byte[][]> solved = new HashMap<>();
+
+    // Undo record of the move being expanded
+    private final MoveUndo undo = new MoveUndo();
+
+    // The table being solved, and what the moves of the current position lead to
+    private int material;
+    private byte[][] values;
+    private int distance;
+    private int shortestWin;
+    private int longestLoss;
+    private boolean unsolvedMove;
+
+    // Last pass a result from a finished table is waiting for, so the current
+    // table is not declared finished before it
+    private int waiting;
+
+    /**
+     * Solve every table with up to maxPieces pieces, where each player has at
+     * least one piece.
+     */
+    public void generate(int maxPieces) {
+        for (int pieces = 2; pieces <= maxPieces; pieces++) {
+            List<Integer> materials = new ArrayList<>();
+            for (int red = 1; red < pieces; red++) {
+                int black = pieces - red;
+                if (red > 12 || black > 12)
+                    continue;
+                for (int redKings = 0; redKings <= red; redKings++)
+                    for (int blackKings = 0; blackKings <= black; blackKings++)
+                        materials.add(EndgameTablebase.material(red - redKings, redKings, black - blackKings,
+                                blackKings));
+            }
+            // A promotion turns a man into a king, so tables with fewer men go first
+            materials.sort((a, b) -> Integer.compare(men(a), men(b)));
+            for (int m : materials)
+                solve(m);
+        }
+    }
+
+    private static int men(int material) {
+        return (material & 0xF) + ((material >> 8) & 0xF);
+    }
+
+    /**
+     * Solve the table of one material. Every table a move can lead to must
+     * already be solved.
+     */
+    private void solve(int material) {
+        long size = EndgameTablebase.tableSize(material);
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Table too large: " + Long.toHexString(material));
+        long startTime = System.currentTimeMillis();
+        this.material = material;
+        values = new byte[2][(int) size];
+
+        waiting = -1;
+        boolean changed = true;
+        for (distance = 0; changed || distance <= waiting; distance++) {
+            changed = false;
+            byte[][] next = { values[0].clone(), values[1].clone() };
+            for (int side = 0; side < 2; side++) {
+                int player = side == 0 ? CheckersData.RED : CheckersData.BLACK;
+                for (int index = 0; index < size; index++) {
+                    if (values[side][index] != EndgameTablebase.DRAW)
+                        continue;
+                    BitBoard gameState = EndgameTablebase.position(material, index);
+                    // Men never stand on the row where they would be crowned
+                    if ((gameState.red & ~gameState.kings & BitBoard.ROW_0) != 0
+                            || (gameState.black & ~gameState.kings & BitBoard.ROW_7) != 0)
+                        continue;
+                    int result = solvePosition(gameState, player);
+                    if (result != EndgameTablebase.DRAW) {
+                        next[side][index] = (byte) result;
+                        changed = true;
+                    }
+                }
+            }
+            values = next;
+        }
+
+        solved.put(material, values);
+        System.out.printf("%d red men, %d red kings, %d black men, %d black kings: %d positions, %d passes, %d ms%n",
+                material & 0xF, (material >> 4) & 0xF, (material >> 8) & 0xF, (material >> 12) & 0xF, 2 * size,
+                distance, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Return the result of a position for the player to move if it ends the game
+     * in exactly the distance of the current pass, otherwise DRAW.
+     */
+    private int solvePosition(BitBoard gameState, int player) {
+        CheckersMove[] moves = gameState.getLegalMoves(player);
+        if (moves == null)
+            return EndgameTablebase.loss(0);
+
+        shortestWin = Integer.MAX_VALUE;
+        longestLoss = 0;
+        unsolvedMove = false;
+        for (CheckersMove move : moves)
+            expandMove(gameState, player, move);
+
+        if (shortestWin == distance)
+            return EndgameTablebase.win(shortestWin);
+        if (!unsolvedMove && longestLoss == distance)
+            return EndgameTablebase.loss(longestLoss);
+        return EndgameTablebase.DRAW;
+    }
+
+    /**
+     * Make the move and look up the result of the position it ends the turn in.
+     * A result that ends the game in distance plies or more is not known yet in
+     * this pass.
+     */
+    private void expandMove(BitBoard gameState, int player, CheckersMove move) {
+        gameState.makeMove(move, undo);
+
+        int opponent = player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED;
+        int result = lookup(gameState, opponent);
+        if (result != EndgameTablebase.DRAW && EndgameTablebase.distance(result) >= distance) {
+            waiting = Math.max(waiting, EndgameTablebase.distance(result) + 1);
+            result = EndgameTablebase.DRAW;
+        }
+        if (EndgameTablebase.isLoss(result))
+            shortestWin = Math.min(shortestWin, EndgameTablebase.distance(result) + 1);
+        else if (EndgameTablebase.isWin(result))
+            longestLoss = Math.max(longestLoss, EndgameTablebase.distance(result) + 1);
+        else
+            unsolvedMove = true;
+
+        gameState.unmakeMove(undo);
+    }
+
+    /**
+     * Return the result of a position reached by a move, for the player to move.
+     */
+    private int lookup(BitBoard gameState, int player) {
+        if (gameState.pieces(player) == 0)
+            return EndgameTablebase.loss(0);
+        int m = EndgameTablebase.material(gameState);
+        byte[][] table = m == material ? values : solved.get(m);
+        return table[player == CheckersData.RED ? 0 : 1][(int) EndgameTablebase.index(gameState)] & 0xFF;
+    }
+
+    /**
+     * Write every solved table to a file in the format read by EndgameTablebase.
+     */
+    public void write(Path file, int maxPieces) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(EndgameTablebase.MAGIC);
+            out.writeInt(maxPieces);
+            out.writeInt(solved.size());
+            long offset = 12 + solved.size() * 20L;
+            List<Integer> materials = new ArrayList<>(solved.keySet());
+            for (int m : materials) {
+                long size = solved.get(m)[0].length;
+                out.writeInt(m);
+                out.writeLong(size);
+                out.writeLong(offset);
+                offset += 2 * size;
+            }
+            for (int m : materials) {
+                out.write(solved.get(m)[0]);
+                out.write(solved.get(m)[1]);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxPieces = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        Path file = Paths.get(args.length > 1 ? args[1] : "endgame.tb");
+
+        TablebaseGenerator generator = new TablebaseGenerator();
+        generator.generate(maxPieces);
+        generator.write(file, maxPieces);
+        System.out.println("Wrote " + file);
+    }
+}
@@ -0,0 +1,163 @@
+package edu.iastate.cs472.proj1;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size hash table that remembers the results of earlier searches so the
+ * same position does not have to be searched again when a different order of
+ * moves leads to it. Positions are identified by their Zobrist hash (see
+ * Zobrist) and every position maps to exactly one slot, so a new entry may
+ * overwrite an older one; the ReplacementPolicy decides when that is allowed.
+ *
+ * Each entry is packed into a single long:
+ *
+ * <pre>
+ *  bits  0-15  score (signed)
+ *  bits 16-23  remaining search depth the score was found with
+ *  bits 24-25  bound type (EXACT, LOWER_BOUND or UPPER_BOUND)
+ *  bits 26-31  generation (which search stored the entry)
+ *  bits 32-62  best move (see encodeMove)
+ *  bit  63     set for every stored entry, so an empty slot reads as 0
+ * </pre>
+ *
+ * The key array holds the position hash XORed with the entry, so a probe only
+ * returns an entry whose key and data were written together.
+ */
+public class TranspositionTable {
+
+    /*
+     * How a stored score relates to the true score of the position. EXACT scores
+     * fell inside the alpha-beta window, LOWER_BOUND scores caused a cutoff in a
+     * max node (the true score is at least this high) and UPPER_BOUND scores
+     * caused a cutoff in a min node (the true score is at most this high).
+     */
+    static final int EXACT = 0, LOWER_BOUND = 1, UPPER_BOUND = 2;
+
+    static final int NO_MOVE = 0;
+
+    /**
+     * Decides whether a new entry may overwrite the entry already in its slot.
+     */
+    public enum ReplacementPolicy {
+        /** Every store overwrites the slot. */
+        ALWAYS,
+        /**
+         * Only overwrite entries that were searched to a smaller depth, belong to the
+         * same position or are left over from an earlier search.
+         */
+        DEPTH_PREFERRED
+    }
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private final ReplacementPolicy policy;
+    private int generation;
+
+    /**
+     * Create a table with the given number of entries using the DEPTH_PREFERRED
+     * replacement policy.
+     *
+     * @param size number of entries, must be a power of two
+     */
+    public TranspositionTable(int size) {
+        this(size, ReplacementPolicy.DEPTH_PREFERRED);
+    }
+
+    /**
+     * Create a table with the given number of entries. Each entry takes 16 bytes.
+     *
+     * @param size   number of entries, must be a power of two
+     * @param policy when a new entry may overwrite an existing one
+     */
+    public TranspositionTable(int size, ReplacementPolicy policy) {
+        if (size <= 0 || Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("Table size must be a power of two: " + size);
+        keys = new long[size];
+        entries = new long[size];
+        mask = size - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Called at the start of every search. Entries stored by earlier searches may
+     * then be replaced no matter how deep they were.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0x3F;
+    }
+
+    /**
+     * Remove every entry from the table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, 0);
+    }
+
+    /**
+     * Return the entry stored for the given position, or 0 if there is none. Use
+     * the static accessors to read the fields of the entry.
+     *
+     * @param key Zobrist hash of the position including the player to move
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = entries[index];
+        if (entry != 0 && (keys[index] ^ entry) == key)
+            return entry;
+        return 0;
+    }
+
+    /**
+     * Store the result of searching a position.
+     *
+     * @param key   Zobrist hash of the position including the player to move
+     * @param depth remaining search depth below the position
+     * @param score score found by the search
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param move  best move found (see encodeMove), or NO_MOVE
+     */
+    public void store(long key, int depth, int score, int bound, int move) {
+        int index = (int) key & mask;
+        long old = entries[index];
+        if (policy == ReplacementPolicy.DEPTH_PREFERRED && old != 0 && (keys[index] ^ old) != key
+                && generation(old) == generation && depth(old) > depth)
+            return;
+
+        score = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score));
+        long entry = (score & 0xFFFFL) | ((long) Math.min(depth, 0xFF) << 16) | ((long) bound << 24)
+                | ((long) generation << 26) | ((long) (move & 0x7FFFFFFF) << 32) | (1L << 63);
+        keys[index] = key ^ entry;
+        entries[index] = entry;
+    }
+
+    static int score(long entry) {
+        return (short) entry;
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> 24) & 0x3;
+    }
+
+    static int generation(long entry) {
+        return (int) (entry >>> 26) & 0x3F;
+    }
+
+    static int move(long entry) {
+        return (int) (entry >>> 32) & 0x7FFFFFFF;
+    }
+
+    /**
+     * Pack a move into the form kept in the table, which is the packed form the
+     * search uses (see BitBoard.move), including the path of a multi-jump. A
+     * stored move is never NO_MOVE.
+     */
+    static int encodeMove(CheckersMove move) {
+        return BitBoard.move(move);
+    }
+}
@@ -0,0 +1,63 @@
+package edu.iastate.cs472.proj1;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys used to give every checkers position a 64 bit Zobrist hash. The
+ * hash of a position is the XOR of one key for every piece on the board, so a
+ * move can update it by XORing out the keys of the pieces that left a square and
+ * XORing in the keys of the pieces that arrived. BitBoard keeps its hash up to
+ * date this way. The player to move is not part of the BitBoard, so searches XOR
+ * in SIDE_TO_MOVE themselves when black is to move.
+ *
+ * The keys come from a fixed seed so hashes are the same from run to run.
+ */
+public class Zobrist {
+
+    // PIECE_KEYS[piece][square] is the key of a piece (one of the CheckersData
+    // piece constants) standing on a square. Row 0 (EMPTY) is all zeros.
+    private static final long[][] PIECE_KEYS = new long[5][32];
+
+    static final long SIDE_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C0DE_CAFEL);
+        for (int piece = CheckersData.RED; piece <= CheckersData.BLACK_KING; piece++) {
+            for (int sq = 0; sq < 32; sq++) {
+                PIECE_KEYS[piece][sq] = random.nextLong();
+            }
+        }
+        SIDE_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Return the key of the given piece standing on the given square.
+     */
+    static long pieceKey(int piece, int sq) {
+        return PIECE_KEYS[piece][sq];
+    }
+
+    /**
+     * Compute the hash of a board from scratch.
+     */
+    static long hash(BitBoard gameState) {
+        long hash = 0;
+        int occupied = gameState.red | gameState.black;
+        while (occupied != 0) {
+            int sq = Integer.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            hash ^= PIECE_KEYS[gameState.pieceAt(sq)][sq];
+        }
+        return hash;
+    }
+
+    /**
+     * Return the hash of a board with the given player to move.
+     */
+    static long hash(BitBoard gameState, int player) {
+        return player == CheckersData.BLACK ? gameState.hash ^ SIDE_TO_MOVE : gameState.hash;
+    }
+}
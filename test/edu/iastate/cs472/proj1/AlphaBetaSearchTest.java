@@ -0,0 +1,71 @@
+package edu.iastate.cs472.proj1;
+
+/**
+ * Checks of AlphaBetaSearch that don't depend on the moves it chooses. There is
+ * no test framework, so every check throws an AssertionError when it fails and
+ * main prints the name of every check that passed.
+ *
+ * <pre>
+ * javac -d out edu/iastate/cs472/proj1/*.java test/edu/iastate/cs472/proj1/*.java
+ * java -cp out edu.iastate.cs472.proj1.AlphaBetaSearchTest
+ * </pre>
+ */
+public class AlphaBetaSearchTest {
+
+    /**
+     * search(BitBoard, CheckersMove[], int, int) searches to the depth given to
+     * setSearchDepth on a new search.
+     */
+    static void searchHonoursSearchDepth() {
+        AlphaBetaSearch search = new AlphaBetaSearch();
+        search.setSearchDepth(8);
+        BitBoard gameState = new CheckersData().toBitBoard();
+        search.search(gameState, gameState.getLegalMoves(CheckersData.RED), CheckersData.RED, 0);
+        check(search.getCompletedDepth() == 8, "completed depth " + search.getCompletedDepth() + ", expected 8");
+        check(search.getNodeCount() > 1000, "only " + search.getNodeCount() + " nodes searched to depth 8");
+    }
+
+    /**
+     * A search stopped by its node limit doesn't stop the next one.
+     */
+    static void searchAfterStoppedSearch() {
+        AlphaBetaSearch search = new AlphaBetaSearch();
+        BitBoard gameState = new CheckersData().toBitBoard();
+        CheckersMove[] legalMoves = gameState.getLegalMoves(CheckersData.RED);
+        search.setSearchDepth(20);
+        search.setNodeLimit(100);
+        search.findBestMove(gameState, legalMoves, CheckersData.RED);
+        check(search.getCompletedDepth() < 20, "the node limit did not stop the search");
+
+        search.setNodeLimit(0);
+        search.setSearchDepth(6);
+        search.search(gameState, legalMoves, CheckersData.RED, 0);
+        check(search.getCompletedDepth() == 6, "completed depth " + search.getCompletedDepth() + ", expected 6");
+    }
+
+    /**
+     * The search leaves the position it is given unchanged.
+     */
+    static void searchLeavesPositionUnchanged() {
+        AlphaBetaSearch search = new AlphaBetaSearch();
+        search.setSearchDepth(6);
+        BitBoard gameState = new CheckersData().toBitBoard();
+        BitBoard before = new CheckersData().toBitBoard();
+        search.search(gameState, gameState.getLegalMoves(CheckersData.RED), CheckersData.RED, 0);
+        check(gameState.equals(before), "the search changed the position");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    public static void main(String[] args) {
+        searchHonoursSearchDepth();
+        System.out.println("searchHonoursSearchDepth passed");
+        searchAfterStoppedSearch();
+        System.out.println("searchAfterStoppedSearch passed");
+        searchLeavesPositionUnchanged();
+        System.out.println("searchLeavesPositionUnchanged passed");
+    }
+}
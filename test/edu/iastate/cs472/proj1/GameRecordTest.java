@@ -0,0 +1,164 @@
+package edu.iastate.cs472.proj1;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that games survive being written and read back, in binary and as PDN.
+ * Like AlphaBetaSearchTest, every check throws an AssertionError when it fails.
+ *
+ * <pre>
+ * javac -d out edu/iastate/cs472/proj1/*.java test/edu/iastate/cs472/proj1/*.java
+ * java -cp out edu.iastate.cs472.proj1.GameRecordTest
+ * </pre>
+ */
+public class GameRecordTest {
+
+    /**
+     * Positions and games written by GameRecordWriter are read back unchanged and
+     * in order by GameRecordReader.
+     */
+    static void binaryRoundTrip() throws IOException {
+        GameRecord first = randomGame(1, 40, CheckersData.BLACK);
+        GameRecord second = randomGame(2, 0, GameRecord.UNFINISHED);
+        BitBoard position = first.positionAfter(10);
+        Path file = Files.createTempFile("games", ".rec");
+        try {
+            try (GameRecordWriter writer = GameRecordWriter.create(file)) {
+                writer.writeGame(first);
+                writer.writePosition(position, CheckersData.RED);
+                writer.writeGame(second);
+            }
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                check(reader.next() && reader.isGame(), "the first record is not a game");
+                checkSameGame(reader.getGame(), first);
+                check(reader.next() && !reader.isGame(), "the second record is not a position");
+                check(reader.getPosition().equals(position), "the position changed");
+                check(reader.getPlayer() == CheckersData.RED, "the player to move changed");
+                check(reader.next() && reader.isGame(), "the third record is not a game");
+                checkSameGame(reader.getGame(), second);
+                check(!reader.next(), "a record was read past the end");
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * A file whose last game is cut short ends with an EOFException rather than a
+     * game with missing moves.
+     */
+    static void truncatedFile() throws IOException {
+        Path file = Files.createTempFile("games", ".rec");
+        try {
+            try (GameRecordWriter writer = GameRecordWriter.create(file)) {
+                writer.writeGame(randomGame(3, 30, CheckersData.RED));
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 2);
+            }
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                reader.next();
+                throw new AssertionError("a truncated game was read");
+            } catch (EOFException e) {
+                // Expected
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Games written as PDN are read back unchanged, with the start position and
+     * player to move taken from the FEN tag.
+     */
+    static void pdnRoundTrip() throws IOException {
+        List<GameRecord> games = Arrays.asList(randomGame(4, 60, CheckersData.RED),
+                randomGame(5, 25, CheckersData.EMPTY), randomGame(6, 7, GameRecord.UNFINISHED));
+        StringWriter out = new StringWriter();
+        GameRecord.writePdn(out, games);
+        List<GameRecord> read = GameRecord.readPdn(new StringReader(out.toString()));
+        check(read.size() == games.size(), read.size() + " games read, expected " + games.size());
+        for (int i = 0; i < games.size(); i++)
+            checkSameGame(read.get(i), games.get(i));
+    }
+
+    /**
+     * A PDN game without a FEN tag starts from the usual position with black to
+     * move.
+     */
+    static void pdnWithoutFen() throws IOException {
+        String pdn = "[Event \"Test\"]\n[Result \"1-0\"]\n\n1. 11-15 23-19 2. 8-11 22-17 {a comment} 1-0\n";
+        List<GameRecord> games = GameRecord.readPdn(new StringReader(pdn));
+        check(games.size() == 1, games.size() + " games read, expected 1");
+        GameRecord game = games.get(0);
+        check(game.getStart().equals(new CheckersData().toBitBoard()), "the game does not start at the start");
+        check(game.getStartPlayer() == CheckersData.BLACK, "black does not move first");
+        check(game.getMoveCount() == 4, game.getMoveCount() + " moves read, expected 4");
+        check(game.getResult() == CheckersData.RED, "the result is not a win for red");
+
+        // Written back out, the game gets a FEN tag and reads back the same
+        List<GameRecord> again = GameRecord.readPdn(new StringReader(game.toPdn()));
+        check(again.size() == 1, again.size() + " games read back, expected 1");
+        checkSameGame(again.get(0), game);
+    }
+
+    /**
+     * Return a game of random legal moves from the start, red moving first, cut
+     * off after the given number of moves or when a player cannot move.
+     */
+    private static GameRecord randomGame(long seed, int maxMoves, int result) {
+        Random random = new Random(seed);
+        BitBoard gameState = new CheckersData().toBitBoard();
+        int player = CheckersData.RED;
+        int[] legalMoves = new int[BitBoard.MAX_MOVES];
+        int[] moves = new int[maxMoves];
+        int count = 0;
+        while (count < maxMoves) {
+            int legalCount = gameState.generateMoves(player, legalMoves);
+            if (legalCount == 0)
+                break;
+            moves[count] = legalMoves[random.nextInt(legalCount)];
+            gameState.makeMove(moves[count++]);
+            player = player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED;
+        }
+        return new GameRecord(new CheckersData().toBitBoard(), CheckersData.RED, Arrays.copyOf(moves, count),
+                result);
+    }
+
+    private static void checkSameGame(GameRecord actual, GameRecord expected) {
+        check(actual.getStart().equals(expected.getStart()), "the start position changed");
+        check(actual.getStartPlayer() == expected.getStartPlayer(), "the player to move first changed");
+        check(actual.getResult() == expected.getResult(),
+                "result " + actual.getResult() + ", expected " + expected.getResult());
+        check(actual.getMoveCount() == expected.getMoveCount(),
+                actual.getMoveCount() + " moves, expected " + expected.getMoveCount());
+        for (int i = 0; i < expected.getMoveCount(); i++)
+            check(actual.getMove(i) == expected.getMove(i), "move " + (i + 1) + " changed");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    public static void main(String[] args) throws IOException {
+        binaryRoundTrip();
+        System.out.println("binaryRoundTrip passed");
+        truncatedFile();
+        System.out.println("truncatedFile passed");
+        pdnRoundTrip();
+        System.out.println("pdnRoundTrip passed");
+        pdnWithoutFen();
+        System.out.println("pdnWithoutFen passed");
+    }
+}
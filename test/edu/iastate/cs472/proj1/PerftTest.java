@@ -0,0 +1,57 @@
+package edu.iastate.cs472.proj1;
+
+/**
+ * Checks the move generation against the known perft counts from the start of a
+ * game, with and without the hash table. Like AlphaBetaSearchTest, every check
+ * throws an AssertionError when it fails.
+ *
+ * <pre>
+ * javac -d out edu/iastate/cs472/proj1/*.java test/edu/iastate/cs472/proj1/*.java
+ * java -cp out edu.iastate.cs472.proj1.PerftTest
+ * </pre>
+ */
+public class PerftTest {
+
+    // perft(1) to perft(10) from the start of a game, with red to move
+    private static final long[] START_COUNTS = { 7, 49, 302, 1469, 7361, 36768, 179740, 845931, 3963680,
+            18391564 };
+
+    /**
+     * Counting without the hash table generates every position, so it checks the
+     * move generation alone.
+     */
+    static void startCountsWithoutHash() {
+        checkStartCounts(new Perft());
+    }
+
+    /**
+     * Counting with the hash table gives the same counts, even when the table is
+     * kept from one depth to the next.
+     */
+    static void startCountsWithHash() {
+        checkStartCounts(new Perft(1 << 16));
+    }
+
+    private static void checkStartCounts(Perft perft) {
+        BitBoard gameState = new CheckersData().toBitBoard();
+        BitBoard before = new CheckersData().toBitBoard();
+        for (int depth = 1; depth <= START_COUNTS.length; depth++) {
+            long count = perft.perft(gameState, CheckersData.RED, depth);
+            check(count == START_COUNTS[depth - 1],
+                    "perft(" + depth + ") = " + count + ", expected " + START_COUNTS[depth - 1]);
+        }
+        check(gameState.equals(before), "perft changed the position");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    public static void main(String[] args) {
+        startCountsWithoutHash();
+        System.out.println("startCountsWithoutHash passed");
+        startCountsWithHash();
+        System.out.println("startCountsWithHash passed");
+    }
+}
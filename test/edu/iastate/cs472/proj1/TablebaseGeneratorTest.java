@@ -0,0 +1,134 @@
+package edu.iastate.cs472.proj1;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks the distances stored by TablebaseGenerator against a brute force search
+ * of every position of a few small materials. Like AlphaBetaSearchTest, every
+ * check throws an AssertionError when it fails.
+ *
+ * <pre>
+ * javac -d out edu/iastate/cs472/proj1/*.java test/edu/iastate/cs472/proj1/*.java
+ * java -cp out edu.iastate.cs472.proj1.TablebaseGeneratorTest
+ * </pre>
+ */
+public class TablebaseGeneratorTest {
+
+    // A draw is checked by searching this many plies without finding a result
+    private static final int DRAW_PLIES = 64;
+
+    // Results of the brute force search, keyed by position, player and plies
+    private final Map<Long, Boolean> wins = new HashMap<>();
+    private final Map<Long, Boolean> losses = new HashMap<>();
+
+    /**
+     * Every position with two pieces, and every position with two kings against
+     * one, where most wins go through a capture into a smaller table, holds the
+     * shortest distance to the end of the game.
+     */
+    static void distancesAreShortest(EndgameTablebase tablebase) {
+        for (int red = 0; red <= 1; red++)
+            for (int black = 0; black <= 1; black++)
+                new TablebaseGeneratorTest().checkTable(tablebase,
+                        EndgameTablebase.material(1 - red, red, 1 - black, black));
+        new TablebaseGeneratorTest().checkTable(tablebase, EndgameTablebase.material(0, 2, 0, 1));
+        new TablebaseGeneratorTest().checkTable(tablebase, EndgameTablebase.material(0, 1, 0, 2));
+    }
+
+    private void checkTable(EndgameTablebase tablebase, int material) {
+        long size = EndgameTablebase.tableSize(material);
+        for (long index = 0; index < size; index++) {
+            BitBoard gameState = EndgameTablebase.position(material, index);
+            // The generator leaves men on the row where they would be crowned as draws
+            if ((gameState.red & ~gameState.kings & BitBoard.ROW_0) != 0
+                    || (gameState.black & ~gameState.kings & BitBoard.ROW_7) != 0)
+                continue;
+            for (int player : new int[] { CheckersData.RED, CheckersData.BLACK }) {
+                int result = tablebase.probe(gameState, player);
+                int distance = EndgameTablebase.distance(result);
+                String where = Long.toHexString(material) + " index " + index + " player " + player;
+                if (EndgameTablebase.isWin(result)) {
+                    check(winsWithin(gameState, player, distance), where + ": no win in " + distance);
+                    check(!winsWithin(gameState, player, distance - 1), where + ": win in less than " + distance);
+                } else if (EndgameTablebase.isLoss(result)) {
+                    check(losesWithin(gameState, player, distance), where + ": no loss in " + distance);
+                    check(!losesWithin(gameState, player, distance - 1), where + ": loss in less than " + distance);
+                } else {
+                    check(!winsWithin(gameState, player, DRAW_PLIES) && !losesWithin(gameState, player, DRAW_PLIES),
+                            where + ": stored as a draw but ends within " + DRAW_PLIES + " plies");
+                }
+            }
+        }
+    }
+
+    /**
+     * Return true if the player to move can win within the given number of plies
+     * however the opponent plays.
+     */
+    private boolean winsWithin(BitBoard gameState, int player, int plies) {
+        if (plies <= 0)
+            return false;
+        long key = Zobrist.hash(gameState, player) * 131 + plies;
+        Boolean known = wins.get(key);
+        if (known != null)
+            return known;
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int count = gameState.generateMoves(player, moves);
+        boolean win = false;
+        for (int i = 0; i < count && !win; i++) {
+            BitBoard child = new BitBoard(gameState);
+            child.makeMove(moves[i]);
+            win = losesWithin(child, opponent(player), plies - 1);
+        }
+        wins.put(key, win);
+        return win;
+    }
+
+    /**
+     * Return true if the player to move loses within the given number of plies
+     * however they play.
+     */
+    private boolean losesWithin(BitBoard gameState, int player, int plies) {
+        if (plies < 0)
+            return false;
+        long key = Zobrist.hash(gameState, player) * 131 + plies;
+        Boolean known = losses.get(key);
+        if (known != null)
+            return known;
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int count = gameState.generateMoves(player, moves);
+        boolean loss = count == 0 || plies > 0;
+        for (int i = 0; i < count && loss; i++) {
+            BitBoard child = new BitBoard(gameState);
+            child.makeMove(moves[i]);
+            loss = winsWithin(child, opponent(player), plies - 1);
+        }
+        losses.put(key, loss);
+        return loss;
+    }
+
+    private static int opponent(int player) {
+        return player == CheckersData.RED ? CheckersData.BLACK : CheckersData.RED;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("endgame", ".tb");
+        file.toFile().deleteOnExit();
+        TablebaseGenerator generator = new TablebaseGenerator();
+        generator.generate(3);
+        generator.write(file, 3);
+        EndgameTablebase tablebase = EndgameTablebase.open(file);
+
+        distancesAreShortest(tablebase);
+        System.out.println("distancesAreShortest passed");
+    }
+}